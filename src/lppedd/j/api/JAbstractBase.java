@@ -24,6 +24,8 @@
 package lppedd.j.api;
 
 import lppedd.j.api.ibm.IBMiDataTypes;
+import lppedd.j.api.ibm.JApi;
+import lppedd.j.api.ibm.JApiResult;
 
 /**
  * Represents every IBMi object.
@@ -51,6 +53,7 @@ public abstract class JAbstractBase implements JBase, IBMiDataTypes
    
    // MBRD0300 -> QUSRMBRD
    protected byte[] MBRD0300;
+   private boolean isMBRD0300Retrieved;
    
    protected JAbstractBase(final JConnection connection, final String name, final String library, final JType type) {
       this.connection = connection;
@@ -98,21 +101,25 @@ public abstract class JAbstractBase implements JBase, IBMiDataTypes
    
    @Override
    public String getAttribute() {
+      retrieveDescription();
       return attribute;
    }
    
    @Override
    public String getText() {
+      retrieveDescription();
       return text;
    }
    
    @Override
    public String getCreator() {
+      retrieveDescription();
       return creator;
    }
    
    @Override
    public long getCreationDateTime() {
+      retrieveDescription();
       return creationDateTime;
    }
    
@@ -126,6 +133,8 @@ public abstract class JAbstractBase implements JBase, IBMiDataTypes
       name = name.trim().toUpperCase();
       
       if (!this.name.equalsIgnoreCase(name)) {
+         // The description must be retrieved while the object can still be found with its original name
+         retrieveDescription();
          this.name = name;
          isNameChanged = true;
       }
@@ -133,12 +142,38 @@ public abstract class JAbstractBase implements JBase, IBMiDataTypes
    
    @Override
    public void setText(final String text) {
-      if (!this.text.equalsIgnoreCase(text)) {
+      if (!getText().equalsIgnoreCase(text)) {
          this.text = text;
          isTextChanged = true;
       }
    }
    
+   /**
+    * Retrieves the object description (text, attribute, creator, creation time) from the system.<br>
+    * It is called before every access to the description and must cost a system call only the first time.
+    */
+   protected void retrieveDescription() {
+      //
+   }
+   
+   /**
+    * Returns the QUSRMBRD MBRD0300 description, retrieving it the first time.
+    *
+    * @return The description or {@code null} if it is not available
+    */
+   protected final byte[] getMBRD0300() {
+      if (!isMBRD0300Retrieved) {
+         isMBRD0300Retrieved = true;
+         final JApiResult output = JApi.QUSRMBRD(connection, "MBRD0300", this);
+         
+         if (output.getMessages().length == 0) {
+            MBRD0300 = output.getValue();
+         }
+      }
+      
+      return MBRD0300;
+   }
+   
    /**
     * Execute the IBMi command to persist the name change.
     */
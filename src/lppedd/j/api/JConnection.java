@@ -26,11 +26,23 @@ package lppedd.j.api;
 import java.beans.PropertyVetoException;
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Exception;
 import com.ibm.as400.access.AS400JDBCConnectionHandle;
 import com.ibm.as400.access.AS400JDBCConnectionPoolDataSource;
 import com.ibm.as400.access.AS400Message;
@@ -41,22 +53,49 @@ import com.ibm.as400.access.Job;
 import com.ibm.as400.access.ObjectDescription;
 import com.ibm.as400.access.ObjectDoesNotExistException;
 import com.ibm.as400.access.ObjectList;
-import com.ibm.as400.access.SystemValue;
+import com.ibm.as400.access.ProgramCall;
+import com.ibm.as400.access.ProgramParameter;
+import com.ibm.as400.access.QSYSObjectPathName;
 
 import lppedd.j.api.exceptions.JConnectionException;
 import lppedd.j.api.factories.JObjectFactory;
 import lppedd.j.api.misc.JUtil;
 import lppedd.j.api.objects.JNullObject;
 import lppedd.j.api.objects.JObject;
+import lppedd.j.api.objects.JObjectIterator;
+import lppedd.j.api.objects.JUserSpacePool;
 
 /**
  * @author Edoardo Luppi
  */
 public class JConnection implements AutoCloseable
 {
+   /**
+    * Number of entries read at a time from an object list.
+    */
+   private static final int LIST_PAGE_SIZE = 1000;
+
+   /**
+    * Maximum number of values in a single SQL {@code IN} predicate.
+    */
+   private static final int SQL_IN_LIST_SIZE = 500;
+
+   /**
+    * Initial length of the pooled user spaces.
+    */
+   private static final int USER_SPACE_LENGTH = 65536;
+
+   /**
+    * Maximum number of asynchronous calls waiting to be run.
+    */
+   private static final int ASYNC_QUEUE_SIZE = 1024;
+
    private AS400 as400;
    private Connection connection;
    private CommandCall commandCall;
+   private JUserSpacePool userSpacePool;
+   private JSystemValues systemValues;
+   private JConnectionExecutor executor;
 
    public JConnection(final String ip, final String user, final String password) throws JConnectionException {
       final AS400JDBCConnectionPoolDataSource dataSource = new AS400JDBCConnectionPoolDataSource(ip, user, password);
@@ -87,18 +126,42 @@ public class JConnection implements AutoCloseable
     *        The member name or {@code null} if none
     */
    public boolean exists(final String library, final String object, final JType type, final String member) {
-      final StringBuilder builder = new StringBuilder(92);
-      builder.append("CHKOBJ OBJ(");
-      builder.append(library);
-      builder.append("/");
-      builder.append(object);
-      builder.append(") OBJTYPE(");
-      builder.append(type.getObjectType());
-      builder.append(") MBR(");
-      builder.append(member == null ? "*NONE" : member);
-      builder.append(")");
+      return exists(library, object, type.getObjectType(), member);
+   }
 
-      return executeCommand(builder.toString()).length == 0;
+   /**
+    * Checks the existence of many objects and members at once.<br>
+    * Objects are resolved with one object list per library and object type, members with one catalog query per
+    * file, instead of one {@code CHKOBJ} per element.
+    *
+    * @param paths
+    *        The objects and members to check. A path with a member name is checked as a member
+    *
+    * @return A bit set where the bit at index {@code i} is set if the {@code i}-th path, in iteration order, exists
+    */
+   public BitSet existsAll(final Collection<QSYSObjectPathName> paths) {
+      final Map<String, List<Integer>> objectGroups = new LinkedHashMap<>(16);
+      final Map<String, List<Integer>> memberGroups = new LinkedHashMap<>(16);
+      final List<QSYSObjectPathName> indexedPaths = new ArrayList<>(paths);
+
+      for (int i = 0; i < indexedPaths.size(); i++) {
+         final QSYSObjectPathName path = indexedPaths.get(i);
+         final boolean isMember = !path.getMemberName().isEmpty();
+         final String key = path.getLibraryName() + "/" + (isMember ? path.getObjectName() : path.getObjectType());
+         (isMember ? memberGroups : objectGroups).computeIfAbsent(key, k -> new ArrayList<>(8)).add(i);
+      }
+
+      final BitSet existing = new BitSet(indexedPaths.size());
+
+      for (final List<Integer> group : objectGroups.values()) {
+         existsObjects(indexedPaths, group, existing);
+      }
+
+      for (final List<Integer> group : memberGroups.values()) {
+         existsMembers(indexedPaths, group, existing);
+      }
+
+      return existing;
    }
 
    /**
@@ -121,13 +184,58 @@ public class JConnection implements AutoCloseable
     *         relativo testo
     */
    public AS400Message[] executeCommand(final String command) {
-      try {
-         commandCall.run(command);
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | PropertyVetoException e) {
-         e.printStackTrace();
+      // The CommandCall is shared, so running a command and reading its messages must be atomic
+      // when the connection is striped across threads (see JConnectionPool).
+      synchronized (commandCall) {
+         try {
+            commandCall.run(command);
+         } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | PropertyVetoException e) {
+            e.printStackTrace();
+         }
+
+         return commandCall.getMessageList();
       }
+   }
 
-      return commandCall.getMessageList();
+   /**
+    * Esegue un comando AS400 in modo asincrono.<br>
+    * I comandi della stessa connessione vengono eseguiti uno alla volta, nell'ordine di invio.
+    *
+    * @param command
+    *        Comando da eseguire
+    *
+    * @return I messaggi del comando, oppure un completamento eccezionale se non e' stato possibile eseguirlo
+    */
+   public CompletableFuture<AS400Message[]> executeCommandAsync(final String command) {
+      final CommandCall commandCall = this.commandCall;
+
+      return getExecutor().submit(() -> {
+         synchronized (commandCall) {
+            commandCall.run(command);
+            return commandCall.getMessageList();
+         }
+      });
+   }
+
+   /**
+    * Chiama un programma in modo asincrono.<br>
+    * I dati di output sono disponibili nei parametri al completamento.
+    *
+    * @param program
+    *        Percorso IFS del programma
+    * @param parameters
+    *        Parametri del programma
+    *
+    * @return I messaggi del programma, oppure un completamento eccezionale se non e' stato possibile chiamarlo
+    */
+   public CompletableFuture<AS400Message[]> callProgramAsync(final String program, final ProgramParameter... parameters) {
+      final AS400 as400 = this.as400;
+
+      return getExecutor().submit(() -> {
+         final ProgramCall pgmCall = new ProgramCall(as400, program, parameters);
+         pgmCall.run();
+         return pgmCall.getMessageList();
+      });
    }
 
    /**
@@ -141,25 +249,43 @@ public class JConnection implements AutoCloseable
     *        Tipo di oggetto da cercare
     */
    public void getListOf(final List<JObject> objects, final String library, final JType type) {
-      final ObjectList objectList = new ObjectList(as400, library, ObjectList.ALL, type.getObjectType());
-      objectList.addObjectAttributeToRetrieve(ObjectDescription.EXTENDED_ATTRIBUTE);
+      final ObjectList objectList = JObjectFactory.newObjectList(this, library, ObjectList.ALL, type);
 
       try {
          objectList.load();
 
-         for (final ObjectDescription description : objectList.getObjects(0, objectList.getLength())) {
-            final JObject object = JObjectFactory.get(this, description.getValueAsString(ObjectDescription.NAME).trim(),
-                  description.getValueAsString(ObjectDescription.LIBRARY).trim(), type);
-
+         for (final JObject object : JObjectFactory.get(this, objectList.getObjects(0, objectList.getLength()))) {
             if (!(object instanceof JNullObject)) {
                objects.add(object);
             }
          }
       } catch (final AS400SecurityException | ObjectDoesNotExistException | ErrorCompletingRequestException | InterruptedException | IOException e) {
          e.printStackTrace();
+      } finally {
+         try {
+            objectList.close();
+         } catch (final AS400SecurityException | ObjectDoesNotExistException | ErrorCompletingRequestException | InterruptedException | IOException e) {
+            e.printStackTrace();
+         }
       }
    }
 
+   /**
+    * Ritorna gli oggetti per il tipo di oggetto passato, recuperandoli una pagina alla volta.
+    * Lo stream va chiuso per rilasciare la lista sul sistema.
+    *
+    * @param library
+    *        Libreria dove cercare
+    * @param type
+    *        Tipo di oggetto da cercare
+    * @param pageSize
+    *        Numero di oggetti recuperati ad ogni chiamata al sistema
+    */
+   public Stream<JObject> streamListOf(final String library, final JType type, final int pageSize) {
+      final ObjectList objectList = JObjectFactory.newObjectList(this, library, ObjectList.ALL, type);
+      return new JObjectIterator(this, objectList, pageSize).stream().filter(object -> !(object instanceof JNullObject));
+   }
+
    /**
     * Returns the connection job.
     */
@@ -216,15 +342,19 @@ public class JConnection implements AutoCloseable
     * @param value
     *        The system value name
     */
-   // TODO: Create a new separate class representing the access to system values.
    public Optional<?> getSystemValue(final String value) {
-      try {
-         return Optional.ofNullable(new SystemValue(as400, value).getValue());
-      } catch (final Exception e) {
-         e.printStackTrace();
+      return getSystemValues().get(value);
+   }
+
+   /**
+    * Returns the cached access to the system values.
+    */
+   public synchronized JSystemValues getSystemValues() {
+      if (systemValues == null) {
+         systemValues = new JSystemValues(this);
       }
 
-      return Optional.empty();
+      return systemValues;
    }
 
    /**
@@ -240,10 +370,28 @@ public class JConnection implements AutoCloseable
       return false;
    }
 
+   /**
+    * Returns the pool of QTEMP user spaces used by the list APIs of this connection.
+    */
+   public synchronized JUserSpacePool getUserSpacePool() {
+      if (userSpacePool == null) {
+         userSpacePool = new JUserSpacePool(this, USER_SPACE_LENGTH);
+      }
+
+      return userSpacePool;
+   }
+
    /**
     * Close the connection to the system.
     */
    public boolean disconnect() {
+      synchronized (this) {
+         if (executor != null) {
+            executor.shutdown();
+            executor = null;
+         }
+      }
+
       try {
          if (as400 != null && as400.isConnected()) {
             as400.disconnectAllServices();
@@ -253,9 +401,12 @@ public class JConnection implements AutoCloseable
             connection.close();
          }
 
+         // QTEMP is cleared when the job ends, no need to delete the user spaces
          as400 = null;
          connection = null;
          commandCall = null;
+         userSpacePool = null;
+         systemValues = null;
          return true;
       } catch (final SQLException e) {
          e.printStackTrace();
@@ -264,6 +415,175 @@ public class JConnection implements AutoCloseable
       return false;
    }
 
+   private synchronized JConnectionExecutor getExecutor() {
+      if (executor == null) {
+         executor = new JConnectionExecutor("JConnection-" + (as400 != null ? as400.getSystemName() : "closed"), ASYNC_QUEUE_SIZE);
+      }
+
+      return executor;
+   }
+
+   /**
+    * Runs {@code CHKOBJ} for a single object or member.
+    */
+   private boolean exists(final String library, final String object, final String objectType, final String member) {
+      final StringBuilder builder = new StringBuilder(92);
+      builder.append("CHKOBJ OBJ(");
+      builder.append(library);
+      builder.append("/");
+      builder.append(object);
+      builder.append(") OBJTYPE(");
+      builder.append(objectType);
+      builder.append(") MBR(");
+      builder.append(member == null ? "*NONE" : member);
+      builder.append(")");
+
+      return executeCommand(builder.toString()).length == 0;
+   }
+
+   /**
+    * Resolves a group of objects sharing library and object type with a single object list.
+    */
+   private void existsObjects(final List<QSYSObjectPathName> paths, final List<Integer> group, final BitSet existing) {
+      final QSYSObjectPathName first = paths.get(group.get(0));
+      final String objectType = "*" + first.getObjectType();
+      final String name = group.size() == 1 ? first.getObjectName() : getGenericName(paths, group);
+      final ObjectList objectList = new ObjectList(as400, first.getLibraryName(), name, objectType);
+      final Set<String> names = new HashSet<>(group.size() * 2);
+
+      try {
+         objectList.load();
+         final int length = objectList.getLength();
+
+         for (int offset = 0; offset < length; offset += LIST_PAGE_SIZE) {
+            for (final ObjectDescription description : objectList.getObjects(offset, Math.min(LIST_PAGE_SIZE, length - offset))) {
+               names.add(description.getName());
+            }
+         }
+      } catch (final AS400Exception e) {
+         // The library itself does not exist
+         if (JUtil.checkForMessage("CPF2110", e.getAS400MessageList()) || JUtil.checkForMessage("CPF9810", e.getAS400MessageList())) {
+            return;
+         }
+
+         // Authority or lock errors don't tell if the objects exist, so they are checked one by one
+         e.printStackTrace();
+
+         existsOneByOne(paths, group, objectType, existing);
+         return;
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+         e.printStackTrace();
+
+         existsOneByOne(paths, group, objectType, existing);
+         return;
+      } finally {
+         try {
+            objectList.close();
+         } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+            e.printStackTrace();
+         }
+      }
+
+      for (final int i : group) {
+         if (names.contains(paths.get(i).getObjectName().toUpperCase())) {
+            existing.set(i);
+         }
+      }
+   }
+
+   private void existsOneByOne(final List<QSYSObjectPathName> paths, final List<Integer> group, final String objectType, final BitSet existing) {
+      for (final int i : group) {
+         final QSYSObjectPathName path = paths.get(i);
+         existing.set(i, exists(path.getLibraryName(), path.getObjectName(), objectType, null));
+      }
+   }
+
+   /**
+    * Resolves a group of members sharing library and file with one catalog query every {@link #SQL_IN_LIST_SIZE}
+    * members.
+    */
+   private void existsMembers(final List<QSYSObjectPathName> paths, final List<Integer> group, final BitSet existing) {
+      final QSYSObjectPathName first = paths.get(group.get(0));
+      final String library = first.getLibraryName();
+      final String file = first.getObjectName();
+
+      // Special values, like *LIBL, cannot be resolved by the catalog
+      if (library.startsWith("*")) {
+         for (final int i : group) {
+            existing.set(i, exists(library, file, "*FILE", paths.get(i).getMemberName()));
+         }
+
+         return;
+      }
+
+      for (int from = 0, size = group.size(); from < size; from += SQL_IN_LIST_SIZE) {
+         final List<Integer> chunk = group.subList(from, Math.min(size, from + SQL_IN_LIST_SIZE));
+         final StringBuilder builder = new StringBuilder(160 + chunk.size() * 3);
+         builder.append("SELECT SYSTEM_TABLE_MEMBER FROM QSYS2.SYSPARTITIONSTAT");
+         builder.append(" WHERE SYSTEM_TABLE_SCHEMA = ? AND SYSTEM_TABLE_NAME = ? AND SYSTEM_TABLE_MEMBER IN (");
+
+         for (int i = 0; i < chunk.size(); i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+         }
+
+         builder.append(")");
+
+         final Set<String> members = new HashSet<>(chunk.size() * 2);
+
+         try (final PreparedStatement statement = connection.prepareStatement(builder.toString())) {
+            statement.setString(1, library.toUpperCase());
+            statement.setString(2, file.toUpperCase());
+
+            for (int i = 0; i < chunk.size(); i++) {
+               statement.setString(i + 3, paths.get(chunk.get(i)).getMemberName().toUpperCase());
+            }
+
+            try (final ResultSet resultSet = statement.executeQuery()) {
+               while (resultSet.next()) {
+                  members.add(resultSet.getString(1).trim());
+               }
+            }
+         } catch (final SQLException e) {
+            e.printStackTrace();
+
+            for (final int i : chunk) {
+               existing.set(i, exists(library, file, "*FILE", paths.get(i).getMemberName()));
+            }
+
+            continue;
+         }
+
+         for (final int i : chunk) {
+            if (members.contains(paths.get(i).getMemberName().toUpperCase())) {
+               existing.set(i);
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns the most selective generic name (e.g. {@code ABC*}) which matches all the objects of the group.
+    */
+   private static String getGenericName(final List<QSYSObjectPathName> paths, final List<Integer> group) {
+      String prefix = paths.get(group.get(0)).getObjectName();
+
+      for (final int i : group) {
+         final String name = paths.get(i).getObjectName();
+         int length = Math.min(prefix.length(), name.length());
+
+         for (int j = 0; j < length; j++) {
+            if (prefix.charAt(j) != name.charAt(j)) {
+               length = j;
+               break;
+            }
+         }
+
+         prefix = prefix.substring(0, length);
+      }
+
+      return prefix.isEmpty() ? ObjectList.ALL : prefix + "*";
+   }
+
    @Override
    public void close() throws Exception {
       disconnect();
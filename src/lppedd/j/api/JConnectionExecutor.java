@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import lppedd.j.api.exceptions.JConnectionException;
+
+/**
+ * Runs the asynchronous calls of a {@link JConnection}.<br>
+ * A connection talks to a single host server job, thus calls are run one at a time by a single thread.
+ * When too many calls are queued the caller waits for a free slot, which slows down the producer instead of
+ * growing the queue without limits, and keeps the calls in submission order.
+ * <p>
+ * Futures are completed on the executor thread, so non-async continuations run there too.
+ * A call queued by such a continuation when the queue is full can't wait for a slot,
+ * as only the executor thread could free it: the call is run immediately instead, ahead of the queued ones.
+ * Continuations must never wait for the outcome of another call of the same connection.
+ *
+ * @author Edoardo Luppi
+ */
+final class JConnectionExecutor
+{
+   /**
+    * A call and the future which receives its outcome.
+    */
+   private static final class JAsyncCall<T> implements Runnable
+   {
+      private final Callable<T> callable;
+      private final CompletableFuture<T> future = new CompletableFuture<>();
+
+      JAsyncCall(final Callable<T> callable) {
+         this.callable = callable;
+      }
+
+      @Override
+      public void run() {
+         try {
+            future.complete(callable.call());
+         } catch (final Throwable e) {
+            future.completeExceptionally(e);
+         }
+      }
+
+      void cancel() {
+         future.completeExceptionally(new JConnectionException("The connection has been closed"));
+      }
+   }
+
+   private final ThreadPoolExecutor executor;
+   private volatile Thread executorThread;
+
+   /**
+    * @param name
+    *        The name of the executor thread
+    * @param queueSize
+    *        The maximum number of queued calls
+    */
+   JConnectionExecutor(final String name, final int queueSize) {
+      executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+         final Thread thread = new Thread(runnable, name);
+         thread.setDaemon(true);
+         executorThread = thread;
+         return thread;
+      }, (runnable, executor) -> {
+         if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The connection has been closed");
+         }
+
+         // Waiting on the executor thread would never end
+         if (Thread.currentThread() == executorThread) {
+            runnable.run();
+            return;
+         }
+
+         try {
+            executor.getQueue().put(runnable);
+         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a free slot", e);
+         }
+
+         // The executor could have been stopped while waiting, and the call would never run
+         if (executor.isShutdown() && executor.remove(runnable)) {
+            throw new RejectedExecutionException("The connection has been closed");
+         }
+      });
+   }
+
+   /**
+    * Queues a call, waiting for a free slot if the queue is full.
+    *
+    * @return A future completed with the result of the call, or exceptionally if the call throws
+    */
+   <T> CompletableFuture<T> submit(final Callable<T> callable) {
+      final JAsyncCall<T> call = new JAsyncCall<>(callable);
+
+      try {
+         executor.execute(call);
+      } catch (final RejectedExecutionException e) {
+         call.future.completeExceptionally(e);
+      }
+
+      return call.future;
+   }
+
+   /**
+    * Stops the executor. Calls not yet started are completed exceptionally.
+    */
+   void shutdown() {
+      for (final Runnable runnable : executor.shutdownNow()) {
+         ((JAsyncCall<?>) runnable).cancel();
+      }
+   }
+}
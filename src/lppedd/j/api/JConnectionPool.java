@@ -0,0 +1,255 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.as400.access.AS400Message;
+import com.ibm.as400.access.ProgramParameter;
+
+import lppedd.j.api.exceptions.JConnectionException;
+
+/**
+ * A fixed size pool of signed-on {@link JConnection}s.<br>
+ * Every connection owns its own host server jobs, so work spread across the pool runs in parallel on the system
+ * instead of queuing on a single job.
+ * <p>
+ * Connections can be obtained in two ways:
+ * <ul>
+ * <li>{@link #lease()} hands out a connection for exclusive use, until the lease is closed. Use it for anything
+ * which relies on the job state, like QTEMP objects (user spaces, API list results) or the library list.</li>
+ * <li>{@link #getConnection()} stripes short, stateless calls across all the connections in round-robin. The
+ * returned connection might be shared with other threads, leased ones included.</li>
+ * </ul>
+ *
+ * @author Edoardo Luppi
+ */
+public class JConnectionPool implements AutoCloseable
+{
+   /**
+    * A connection leased from the pool.<br>
+    * Closing the lease gives the connection back to the pool.
+    */
+   public class JConnectionLease implements AutoCloseable
+   {
+      private final JConnection connection;
+      private boolean isReleased;
+
+      private JConnectionLease(final JConnection connection) {
+         this.connection = connection;
+      }
+
+      /**
+       * Returns the leased connection.
+       */
+      public JConnection getConnection() {
+         if (isReleased) {
+            throw new IllegalStateException("The lease has already been released");
+         }
+
+         return connection;
+      }
+
+      @Override
+      public void close() {
+         if (!isReleased) {
+            isReleased = true;
+            release(connection);
+         }
+      }
+   }
+
+   private final List<JConnection> connections;
+   private final BlockingQueue<JConnection> idleConnections;
+   private final AtomicInteger stripe = new AtomicInteger();
+   private volatile boolean isClosed;
+
+   /**
+    * Creates a new pool and signs on all its connections.
+    *
+    * @param ip
+    *        The system address
+    * @param user
+    *        The user profile
+    * @param password
+    *        The user profile password
+    * @param size
+    *        The number of connections
+    */
+   public JConnectionPool(final String ip, final String user, final String password, final int size) throws JConnectionException {
+      if (size < 1) {
+         throw new IllegalArgumentException("The pool size must be greater than zero");
+      }
+
+      final JConnection[] signedOn = new JConnection[size];
+
+      try {
+         for (int i = 0; i < size; i++) {
+            signedOn[i] = new JConnection(ip, user, password);
+         }
+      } catch (final JConnectionException e) {
+         for (final JConnection connection : signedOn) {
+            if (connection != null) {
+               connection.disconnect();
+            }
+         }
+
+         throw e;
+      }
+
+      connections = Collections.unmodifiableList(Arrays.asList(signedOn));
+      idleConnections = new ArrayBlockingQueue<>(size, true, connections);
+   }
+
+   /**
+    * Leases a connection for exclusive use, waiting until one becomes available.
+    */
+   public JConnectionLease lease() throws InterruptedException {
+      checkOpen();
+      return new JConnectionLease(idleConnections.take());
+   }
+
+   /**
+    * Leases a connection for exclusive use, waiting up to the specified time until one becomes available.
+    *
+    * @param timeout
+    *        How long to wait
+    * @param unit
+    *        The time unit of the timeout
+    *
+    * @return The lease or {@code null} if no connection became available in time
+    */
+   public JConnectionLease lease(final long timeout, final TimeUnit unit) throws InterruptedException {
+      checkOpen();
+      final JConnection connection = idleConnections.poll(timeout, unit);
+      return connection != null ? new JConnectionLease(connection) : null;
+   }
+
+   /**
+    * Returns the next connection in round-robin order, to stripe stateless calls across the pool.<br>
+    * The connection is not leased, thus it must not be used for job-dependent work.
+    */
+   public JConnection getConnection() {
+      checkOpen();
+      return connections.get((stripe.getAndIncrement() & Integer.MAX_VALUE) % connections.size());
+   }
+
+   /**
+    * Runs a command asynchronously on the next connection in round-robin order.
+    *
+    * @see JConnection#executeCommandAsync(String)
+    */
+   public CompletableFuture<AS400Message[]> executeCommandAsync(final String command) {
+      return getConnection().executeCommandAsync(command);
+   }
+
+   /**
+    * Runs independent commands asynchronously, spreading them across all the connections of the pool.
+    *
+    * @return The messages of each command, in the same order of the commands.
+    *         Completes exceptionally if any command couldn't be run
+    */
+   public CompletableFuture<List<AS400Message[]>> executeCommandsAsync(final Collection<String> commands) {
+      final List<CompletableFuture<AS400Message[]>> futures = new ArrayList<>(commands.size());
+
+      for (final String command : commands) {
+         futures.add(executeCommandAsync(command));
+      }
+
+      return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(ignored -> {
+         final List<AS400Message[]> messages = new ArrayList<>(futures.size());
+
+         for (final CompletableFuture<AS400Message[]> future : futures) {
+            messages.add(future.join());
+         }
+
+         return messages;
+      });
+   }
+
+   /**
+    * Calls a program asynchronously on the next connection in round-robin order.
+    *
+    * @see JConnection#callProgramAsync(String, ProgramParameter...)
+    */
+   public CompletableFuture<AS400Message[]> callProgramAsync(final String program, final ProgramParameter... parameters) {
+      return getConnection().callProgramAsync(program, parameters);
+   }
+
+   /**
+    * Returns all the connections of the pool.
+    */
+   public List<JConnection> getConnections() {
+      return connections;
+   }
+
+   /**
+    * Returns the number of connections in the pool.
+    */
+   public int size() {
+      return connections.size();
+   }
+
+   /**
+    * Returns the number of connections currently available for lease.
+    */
+   public int getAvailableCount() {
+      return idleConnections.size();
+   }
+
+   /**
+    * Closes every connection of the pool.
+    */
+   @Override
+   public void close() {
+      isClosed = true;
+
+      for (final JConnection connection : connections) {
+         connection.disconnect();
+      }
+
+      idleConnections.clear();
+   }
+
+   private void release(final JConnection connection) {
+      if (!isClosed) {
+         idleConnections.offer(connection);
+      }
+   }
+
+   private void checkOpen() {
+      if (isClosed) {
+         throw new IllegalStateException("The connection pool is closed");
+      }
+   }
+}
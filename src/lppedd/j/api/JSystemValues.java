@@ -0,0 +1,272 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.RequestNotSupportedException;
+import com.ibm.as400.access.SystemValue;
+import com.ibm.as400.access.SystemValueGroup;
+import com.ibm.as400.access.SystemValueList;
+
+/**
+ * Access to the system values of a connection.
+ * <p>
+ * Values are cached indefinitely once retrieved, and can be fetched in groups with a single call
+ * using {@link #prefetch(String...)} or {@link #prefetchGroup(int)}.<br>
+ * Date and time values (QDATE, QTIME, QDATETIME, ...) are never cached. They are derived from a single
+ * QDATETIME sample plus the elapsed local monotonic time, and the sample is taken again
+ * after the resync interval.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSystemValues
+{
+   private static final String QDATETIME = "QDATETIME";
+   private static final DateTimeFormatter QDATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+   private static final Set<String> CLOCK_VALUES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+         "QCENTURY", "QDATE", "QDATETIME", "QDAY", "QHOUR", "QMINUTE", "QMONTH", "QSECOND", "QTIME", "QYEAR")));
+
+   private final JConnection connection;
+   private final Map<String, Object> values = new ConcurrentHashMap<>(64);
+   private final Map<String, DateTimeFormatter> formatters = new ConcurrentHashMap<>(8);
+
+   private long resyncIntervalNanos = TimeUnit.MINUTES.toNanos(10);
+   private LocalDateTime sampleDateTime;
+   private long sampleNanos;
+   private boolean isSampled;
+
+   JSystemValues(final JConnection connection) {
+      this.connection = connection;
+   }
+
+   /**
+    * Returns a system value, from the cache if already retrieved.
+    *
+    * @param name
+    *        The system value name
+    */
+   public Optional<Object> get(final String name) {
+      if (CLOCK_VALUES.contains(name)) {
+         return Optional.of(getClockValue(name, now()));
+      }
+
+      final Object value = values.get(name);
+
+      if (value != null) {
+         return Optional.of(value);
+      }
+
+      try {
+         return Optional.ofNullable(cache(new SystemValue(connection.getAs400(), name)));
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException | RequestNotSupportedException e) {
+         e.printStackTrace();
+      }
+
+      return Optional.empty();
+   }
+
+   /**
+    * Retrieves many system values with a single call, skipping those already cached.
+    * Requesting a date or time value also resyncs the clock.
+    *
+    * @param names
+    *        The system values names
+    */
+   public void prefetch(final String... names) {
+      final List<String> missing = new ArrayList<>(names.length);
+      boolean isClockRequested = false;
+
+      for (final String name : names) {
+         if (CLOCK_VALUES.contains(name)) {
+            isClockRequested = true;
+         } else if (!values.containsKey(name) && !missing.contains(name)) {
+            missing.add(name);
+         }
+      }
+
+      if (isClockRequested) {
+         missing.add(QDATETIME);
+      }
+
+      if (missing.isEmpty()) {
+         return;
+      }
+
+      final SystemValueGroup group = new SystemValueGroup(connection.getAs400(), "JSYSVAL", "", missing.toArray(new String[missing.size()]));
+      final long startNanos = System.nanoTime();
+
+      try {
+         cacheAll(group.getSystemValues(), startNanos);
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException | RequestNotSupportedException e) {
+         e.printStackTrace();
+      }
+   }
+
+   /**
+    * Retrieves all the system values of a group with a single call.
+    *
+    * @param group
+    *        The group, e.g. {@link SystemValueList#GROUP_SYSCTL}
+    */
+   public void prefetchGroup(final int group) {
+      final long startNanos = System.nanoTime();
+
+      try {
+         cacheAll(new SystemValueList(connection.getAs400()).getGroup(group), startNanos);
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException | RequestNotSupportedException e) {
+         e.printStackTrace();
+      }
+   }
+
+   /**
+    * Returns the current system date and time, derived from the last clock sample.
+    * If the system can't be reached, the local date and time is returned.
+    */
+   public synchronized LocalDateTime now() {
+      if (!isSampled || System.nanoTime() - sampleNanos > resyncIntervalNanos) {
+         resync();
+      }
+
+      return isSampled ? sampleDateTime.plusNanos(System.nanoTime() - sampleNanos) : LocalDateTime.now();
+   }
+
+   /**
+    * Returns the current system date and time, formatted with the specified pattern.
+    *
+    * @param pattern
+    *        A {@link DateTimeFormatter} pattern, e.g. <code>yyMMdd</code>
+    */
+   public String format(final String pattern) {
+      return now().format(formatters.computeIfAbsent(pattern, DateTimeFormatter::ofPattern));
+   }
+
+   /**
+    * Takes a new clock sample from the system.
+    */
+   public synchronized void resync() {
+      final long startNanos = System.nanoTime();
+
+      try {
+         setClockSample((String) new SystemValue(connection.getAs400(), QDATETIME).getValue(), startNanos);
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException | RequestNotSupportedException | ClassCastException | IndexOutOfBoundsException | DateTimeParseException e) {
+         e.printStackTrace();
+      }
+   }
+
+   /**
+    * Sets how long a clock sample is trusted before taking a new one.
+    */
+   public synchronized void setResyncInterval(final long interval, final TimeUnit unit) {
+      resyncIntervalNanos = unit.toNanos(interval);
+   }
+
+   /**
+    * Empties the cache, so that values are retrieved again.
+    */
+   public synchronized void invalidate() {
+      values.clear();
+      isSampled = false;
+   }
+
+   private Object cache(final SystemValue systemValue) throws AS400SecurityException, ErrorCompletingRequestException, InterruptedException, IOException, ObjectDoesNotExistException, RequestNotSupportedException {
+      final Object value = systemValue.getValue();
+
+      if (value != null) {
+         values.put(systemValue.getName(), value);
+      }
+
+      return value;
+   }
+
+   private void cacheAll(final Vector<?> systemValues, final long startNanos) throws AS400SecurityException, ErrorCompletingRequestException, InterruptedException, IOException, ObjectDoesNotExistException, RequestNotSupportedException {
+      for (final Object element : systemValues) {
+         final SystemValue systemValue = (SystemValue) element;
+
+         if (QDATETIME.equals(systemValue.getName())) {
+            synchronized (this) {
+               setClockSample((String) systemValue.getValue(), startNanos);
+            }
+         } else if (!CLOCK_VALUES.contains(systemValue.getName())) {
+            cache(systemValue);
+         }
+      }
+   }
+
+   private void setClockSample(final String dateTime, final long startNanos) {
+      // Il valore e' nel formato YYYYMMDDHHNNSSXXXXXX, con XXXXXX i microsecondi
+      sampleDateTime = LocalDateTime.parse(dateTime.substring(0, 14), QDATETIME_FORMATTER)
+            .plusNanos(Long.parseLong(dateTime.substring(14, 20)) * 1000);
+
+      // Il campione si considera preso a meta' della chiamata
+      sampleNanos = startNanos + (System.nanoTime() - startNanos) / 2;
+      isSampled = true;
+   }
+
+   private static Object getClockValue(final String name, final LocalDateTime dateTime) {
+      switch (name) {
+         case "QCENTURY":
+            return String.valueOf(dateTime.getYear() / 100 - 19);
+         case "QDATE":
+            return Date.valueOf(dateTime.toLocalDate());
+         case "QDATETIME":
+            return dateTime.format(QDATETIME_FORMATTER) + String.format("%06d", dateTime.getNano() / 1000);
+         case "QDAY":
+            return String.format("%02d", dateTime.getDayOfMonth());
+         case "QHOUR":
+            return String.format("%02d", dateTime.getHour());
+         case "QMINUTE":
+            return String.format("%02d", dateTime.getMinute());
+         case "QMONTH":
+            return String.format("%02d", dateTime.getMonthValue());
+         case "QSECOND":
+            return String.format("%02d", dateTime.getSecond());
+         case "QTIME":
+            return Time.valueOf(dateTime.toLocalTime());
+         case "QYEAR":
+            return String.format("%02d", dateTime.getYear() % 100);
+         default:
+            throw new IllegalArgumentException(name);
+      }
+   }
+}
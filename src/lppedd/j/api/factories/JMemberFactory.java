@@ -76,17 +76,17 @@ public final class JMemberFactory
          if (pgmCall.run() && pgmCall.getMessageList().length == 0) {
             switch (IBMiDataTypes.CHAR10.toObject(parameters[0].getOutputData(), 48).toString().trim()) {
                case "SQL":
-                  member = new JSqlMember(null, name, object, library);
+                  member = new JSqlMember(connection, name, object, library);
                   break;
                case "PF":
                case "LF":
                case "PRTF":
-                  member = new JDdsMember(null, name, object, library);
+                  member = new JDdsMember(connection, name, object, library);
                   break;
                case "CLLE":
                case "RPGLE":
                case "SQLRPGLE":
-                  member = new JProgramMember(null, name, object, library);
+                  member = new JProgramMember(connection, name, object, library);
                   break;
                default:
                   break;
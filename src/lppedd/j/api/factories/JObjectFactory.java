@@ -24,6 +24,15 @@
 package lppedd.j.api.factories;
 
 import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.ibm.as400.access.AS400SecurityException;
 import com.ibm.as400.access.ErrorCompletingRequestException;
@@ -39,6 +48,7 @@ import lppedd.j.api.files.database.JPhysicalFile;
 import lppedd.j.api.files.database.JSourcePhysicalFile;
 import lppedd.j.api.files.device.JPrinterFile;
 import lppedd.j.api.files.device.JSaveFile;
+import lppedd.j.api.objects.JAbstractObject;
 import lppedd.j.api.objects.JJournal;
 import lppedd.j.api.objects.JLibrary;
 import lppedd.j.api.objects.JModule;
@@ -52,6 +62,31 @@ import lppedd.j.api.objects.JServiceProgram;
  */
 public final class JObjectFactory
 {
+   /**
+    * The object list attributes needed to build a fully populated object,
+    * without further calls to the system.
+    */
+   public static final int[] DESCRIPTION_ATTRIBUTES = {
+         ObjectDescription.EXTENDED_ATTRIBUTE,
+         ObjectDescription.TEXT_DESCRIPTION,
+         ObjectDescription.CREATOR_USER_PROFILE,
+         ObjectDescription.CREATION_DATE
+   };
+
+   /**
+    * Creates an object list which retrieves the {@link #DESCRIPTION_ATTRIBUTES}.
+    * The list must be loaded and closed by the caller.
+    */
+   public static ObjectList newObjectList(final JConnection connection, final String library, final String name, final JType type) {
+      final ObjectList objectList = new ObjectList(connection.getAs400(), library, name, type.getObjectType());
+
+      for (final int attribute : DESCRIPTION_ATTRIBUTES) {
+         objectList.addObjectAttributeToRetrieve(attribute);
+      }
+
+      return objectList;
+   }
+
    /**
     * Retrives an object from the system.
     *
@@ -63,77 +98,182 @@ public final class JObjectFactory
     * @param type
     *        The type of the object. Allowed values: <code>*ALL</code>
     */
-   public static JObject get(final JConnection connection, final String name, String library, final JType type) {
+   public static JObject get(final JConnection connection, final String name, final String library, final JType type) {
       JObject object = JNullObject.getInstance();
-      
-      final ObjectList objectList = new ObjectList(connection.getAs400(), library, name, type.getObjectType());
-      objectList.addObjectAttributeToRetrieve(ObjectDescription.EXTENDED_ATTRIBUTE);
-      
+      final ObjectList objectList = newObjectList(connection, library, name, type);
+
       try {
          objectList.load();
-         
+
          if (objectList.getLength() > 0) {
-            final ObjectDescription objDescription = objectList.getObjects(0, 1)[0];
-            final String attribute = objDescription.getValueAsString(ObjectDescription.EXTENDED_ATTRIBUTE);
-            library = objDescription.getLibrary();
-            
-            switch (objDescription.getType()) {
-               case "FILE":
-                  switch (attribute) {
-                     case "PF":
-                        final StringBuilder builder = new StringBuilder(40);
-                        builder.append("/QSYS.LIB/");
-                        builder.append(library);
-                        builder.append("/");
-                        builder.append(name);
-                        builder.append(".FILE");
-                        
-                        final IFSFile file = new IFSFile(connection.getAs400(), builder.toString());
-                        object = file.isSourcePhysicalFile() ? new JSourcePhysicalFile(connection, name, library) : new JPhysicalFile(connection, name, library);
-                        break;
-                     case "LF":
-                        object = new JLogicalFile(connection, name, library);
-                        break;
-                     case "PRTF":
-                        object = new JPrinterFile(connection, name, library);
-                        break;
-                     case "SAVF":
-                        object = new JSaveFile(connection, name, library);
-                     default:
-                        break;
-                  }
-                  
-                  break;
-               case "PGM":
-                  object = new JProgram(connection, name, library);
+            object = get(connection, objectList.getObjects(0, 1)[0]);
+         }
+      } catch (NullPointerException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+         e.printStackTrace();
+      } finally {
+         try {
+            objectList.close();
+         } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+            e.printStackTrace();
+         }
+      }
+
+      return object;
+   }
+
+   /**
+    * Builds an object from an already loaded object list entry.
+    * Only physical files require an additional call, to know if they are source files.
+    */
+   public static JObject get(final JConnection connection, final ObjectDescription description) {
+      try {
+         final boolean isSourceFile = isPhysicalFile(description)
+               && new IFSFile(connection.getAs400(), description.getPath()).isSourcePhysicalFile();
+
+         return newObject(connection, description, isSourceFile);
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+         e.printStackTrace();
+      }
+
+      return JNullObject.getInstance();
+   }
+
+   /**
+    * Builds the objects from already loaded object list entries.
+    * Source physical files are recognized with a single catalog query for each library.
+    *
+    * @return
+    *         The objects, in the same order of the entries. Unsupported entries
+    *         are returned as {@link JNullObject}
+    */
+   public static List<JObject> get(final JConnection connection, final ObjectDescription[] descriptions) {
+      return get(connection, descriptions, new HashMap<>(16));
+   }
+
+   /**
+    * Builds the objects from already loaded object list entries, like {@link #get(JConnection, ObjectDescription[])}.
+    *
+    * @param sourceFiles
+    *        The source physical files already known for each library.
+    *        Can be shared between calls, e.g. when paging through a list
+    */
+   public static List<JObject> get(final JConnection connection, final ObjectDescription[] descriptions, final Map<String, Set<String>> sourceFiles) {
+      final List<JObject> objects = new ArrayList<>(descriptions.length);
+
+      for (final ObjectDescription description : descriptions) {
+         JObject object = JNullObject.getInstance();
+
+         try {
+            boolean isSourceFile = false;
+
+            if (isPhysicalFile(description)) {
+               final String library = description.getLibrary();
+               Set<String> librarySourceFiles = sourceFiles.get(library);
+
+               if (librarySourceFiles == null && !sourceFiles.containsKey(library)) {
+                  librarySourceFiles = getSourceFiles(connection, library);
+                  sourceFiles.put(library, librarySourceFiles);
+               }
+
+               isSourceFile = librarySourceFiles != null
+                     ? librarySourceFiles.contains(description.getName())
+                     : new IFSFile(connection.getAs400(), description.getPath()).isSourcePhysicalFile();
+            }
+
+            object = newObject(connection, description, isSourceFile);
+         } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+            e.printStackTrace();
+         }
+
+         objects.add(object);
+      }
+
+      return objects;
+   }
+
+   private static boolean isPhysicalFile(final ObjectDescription description) throws AS400SecurityException, ErrorCompletingRequestException, InterruptedException, IOException, ObjectDoesNotExistException {
+      return "FILE".equals(description.getType()) && "PF".equals(description.getValueAsString(ObjectDescription.EXTENDED_ATTRIBUTE).trim());
+   }
+
+   private static JObject newObject(final JConnection connection, final ObjectDescription description, final boolean isSourceFile) throws AS400SecurityException, ErrorCompletingRequestException, InterruptedException, IOException, ObjectDoesNotExistException {
+      final String name = description.getName();
+      final String library = description.getLibrary();
+      JAbstractObject object = null;
+
+      switch (description.getType()) {
+         case "FILE":
+            switch (description.getValueAsString(ObjectDescription.EXTENDED_ATTRIBUTE).trim()) {
+               case "PF":
+                  object = isSourceFile ? new JSourcePhysicalFile(connection, name, library) : new JPhysicalFile(connection, name, library);
                   break;
-               case "MODULE":
-                  object = new JModule(connection, name, library);
+               case "LF":
+                  object = new JLogicalFile(connection, name, library);
                   break;
-               case "SRVPGM":
-                  object = new JServiceProgram(connection, name, library);
+               case "PRTF":
+                  object = new JPrinterFile(connection, name, library);
                   break;
-               case "JRN":
-                  object = new JJournal(connection, name, library);
+               case "SAVF":
+                  object = new JSaveFile(connection, name, library);
                   break;
-               case "LIB":
-                  object = new JLibrary(connection, name);
                default:
                   break;
             }
-         }
-      } catch (NullPointerException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
-         e.printStackTrace();
-      } finally {
-         if (objectList != null) {
-            try {
-               objectList.close();
-            } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
-               e.printStackTrace();
+
+            break;
+         case "PGM":
+            object = new JProgram(connection, name, library);
+            break;
+         case "MODULE":
+            object = new JModule(connection, name, library);
+            break;
+         case "SRVPGM":
+            object = new JServiceProgram(connection, name, library);
+            break;
+         case "JRN":
+            object = new JJournal(connection, name, library);
+            break;
+         case "LIB":
+            object = new JLibrary(connection, name);
+            break;
+         default:
+            break;
+      }
+
+      if (object == null) {
+         return JNullObject.getInstance();
+      }
+
+      object.loadDescription(description);
+      return object;
+   }
+
+   /**
+    * Returns the names of the source physical files contained in a library,
+    * or null if the catalog can't be queried.
+    */
+   private static Set<String> getSourceFiles(final JConnection connection, final String library) {
+      if (library.startsWith("*")) {
+         return null;
+      }
+
+      final String sql = "SELECT SYSTEM_TABLE_NAME FROM QSYS2.SYSTABLES WHERE SYSTEM_TABLE_SCHEMA = ? AND FILE_TYPE = 'S'";
+
+      try (final PreparedStatement statement = connection.getConnection().prepareStatement(sql)) {
+         statement.setString(1, library);
+
+         try (final ResultSet resultSet = statement.executeQuery()) {
+            final Set<String> sourceFiles = new HashSet<>(64);
+
+            while (resultSet.next()) {
+               sourceFiles.add(resultSet.getString(1).trim());
             }
+
+            return sourceFiles;
          }
+      } catch (final SQLException e) {
+         e.printStackTrace();
       }
-      
-      return object;
+
+      return null;
    }
 }
@@ -24,7 +24,6 @@
 package lppedd.j.api.files;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import com.ibm.as400.access.BinaryConverter;
@@ -32,7 +31,7 @@ import com.ibm.as400.access.BinaryConverter;
 import lppedd.j.api.JConnection;
 import lppedd.j.api.JType;
 import lppedd.j.api.ibm.JApi;
-import lppedd.j.api.ibm.JApiResult;
+import lppedd.j.api.ibm.JApiList;
 import lppedd.j.api.misc.JUtil;
 import lppedd.j.api.objects.JAbstractObject;
 
@@ -54,61 +53,53 @@ public abstract class JAbstractFile extends JAbstractObject implements JFile
    public List<JRecordFormat> getRecordFormats() {
       final JConnection connection = getConnection();
 
-      JApiResult output = JApi.QUSLRCD(connection, "RCDL0200", this);
-      final byte[] outputValue = output.getValue();
-
-      if (outputValue.length < 140) {
-         return Collections.emptyList();
-      }
-
-      int recordFormatsOffset = BinaryConverter.byteArrayToInt(outputValue, 124);
-      int recordFormatsCount = BinaryConverter.byteArrayToInt(outputValue, 132);
-      final int recordFormatEntrySize = BinaryConverter.byteArrayToInt(outputValue, 136);
-      final List<JRecordFormat> recordFormats = new ArrayList<>(recordFormatsCount);
-
-      for (; recordFormatsCount > 0; --recordFormatsCount, recordFormatsOffset += recordFormatEntrySize) {
-         final String recordFormatName = ((String) CHAR10.toObject(outputValue, recordFormatsOffset)).trim();
-         final List<JField> recordFormatFields = new ArrayList<>(20);
-         final JRecordFormat recordFormat = new JRecordFormat(
-               this,
-               recordFormatName,
-               ((String) CHAR50.toObject(outputValue, recordFormatsOffset + 32)).trim(),
-               recordFormatFields);
-
-         recordFormats.add(recordFormat);
-
-         // Per ogni formato record ricavo i campi.
-         output = JApi.QUSLFLD(connection, "FLDL0100", recordFormatName, this);
-         final byte[] outputValueFields = output.getValue();
-
-         if (outputValueFields.length < 140) {
-            continue;
-         }
-
-         int fieldsOffset = BinaryConverter.byteArrayToInt(outputValueFields, 124);
-         int fieldsCount = BinaryConverter.byteArrayToInt(outputValueFields, 132);
-         final int fieldEntrySize = BinaryConverter.byteArrayToInt(outputValueFields, 136);
-
-         for (; fieldsCount > 0; --fieldsCount, fieldsOffset += fieldEntrySize) {
-            final String fieldName = ((String) CHAR10.toObject(outputValueFields, fieldsOffset)).trim();
-
-            // Non ha senso considerare gli indicatori come dei campi.
-            // Questo caso si puo' presentare con i printer file.
-            if (fieldName.startsWith("*IN")) {
-               continue;
+      try (final JApiList recordFormatsList = JApi.QUSLRCD(connection, "RCDL0200", this)) {
+         final List<JRecordFormat> recordFormats = new ArrayList<>(recordFormatsList.size());
+
+         while (recordFormatsList.hasNext()) {
+            final byte[] recordFormatEntry = recordFormatsList.next();
+            final String recordFormatName = ((String) CHAR10.toObject(recordFormatEntry, 0)).trim();
+            final List<JField> recordFormatFields = new ArrayList<>(20);
+            final JRecordFormat recordFormat = new JRecordFormat(
+                  this,
+                  recordFormatName,
+                  ((String) CHAR50.toObject(recordFormatEntry, 32)).trim(),
+                  recordFormatFields);
+
+            recordFormats.add(recordFormat);
+
+            // Per ogni formato record ricavo i campi.
+            try (final JApiList fieldsList = JApi.QUSLFLD(connection, "FLDL0100", recordFormatName, this)) {
+               // The field data CCSID is missing from shorter entries
+               final boolean hasVariableLength = fieldsList.getEntrySize() >= 268;
+               final boolean hasCcsid = fieldsList.getEntrySize() >= 276;
+
+               while (fieldsList.hasNext()) {
+                  final byte[] fieldEntry = fieldsList.next();
+                  final String fieldName = ((String) CHAR10.toObject(fieldEntry, 0)).trim();
+
+                  // Non ha senso considerare gli indicatori come dei campi.
+                  // Questo caso si puo' presentare con i printer file.
+                  if (fieldName.startsWith("*IN")) {
+                     continue;
+                  }
+
+                  recordFormatFields.add(new JField(
+                        recordFormat,
+                        fieldName,
+                        JField.getEnumDataType((String) CHAR1.toObject(fieldEntry, 10)),
+                        BinaryConverter.byteArrayToInt(fieldEntry, 20),
+                        BinaryConverter.byteArrayToInt(fieldEntry, 24),
+                        BinaryConverter.byteArrayToInt(fieldEntry, 28),
+                        ((String) CHAR50.toObject(fieldEntry, 32)).trim(),
+                        BinaryConverter.byteArrayToInt(fieldEntry, 16),
+                        hasCcsid ? BinaryConverter.byteArrayToInt(fieldEntry, 272) : 0,
+                        hasVariableLength && "1".equals(CHAR1.toObject(fieldEntry, 267))));
+               }
             }
-
-            recordFormatFields.add(new JField(
-                  recordFormat,
-                  fieldName,
-                  JField.getEnumDataType((String) CHAR1.toObject(outputValueFields, fieldsOffset + 10)),
-                  BinaryConverter.byteArrayToInt(outputValueFields, fieldsOffset + 20),
-                  BinaryConverter.byteArrayToInt(outputValueFields, fieldsOffset + 24),
-                  BinaryConverter.byteArrayToInt(outputValueFields, fieldsOffset + 28),
-                  ((String) CHAR50.toObject(outputValueFields, fieldsOffset + 32)).trim()));
          }
-      }
 
-      return recordFormats;
+         return recordFormats;
+      }
    }
 }
@@ -55,6 +55,9 @@ public class JField
    private final int digits;
    private final int decimalPositions;
    private final String description;
+   private final int bufferPosition;
+   private final int ccsid;
+   private final boolean isVariableLength;
 
    JField(
          final JRecordFormat parent,
@@ -63,7 +66,10 @@ public class JField
          final int length,
          final int digits,
          final int decimalPositions,
-         final String description) {
+         final String description,
+         final int bufferPosition,
+         final int ccsid,
+         final boolean isVariableLength) {
       this.parent = parent;
       this.name = name;
       this.dataType = dataType;
@@ -71,6 +77,9 @@ public class JField
       this.digits = digits;
       this.decimalPositions = decimalPositions;
       this.description = description;
+      this.bufferPosition = bufferPosition;
+      this.ccsid = ccsid;
+      this.isVariableLength = isVariableLength;
    }
 
    public JRecordFormat getParent() {
@@ -101,6 +110,28 @@ public class JField
       return description;
    }
 
+   /**
+    * Returns the position of the field in the record buffer, starting from 1, or 0 if unknown.
+    */
+   public int getBufferPosition() {
+      return bufferPosition;
+   }
+
+   /**
+    * Returns the CCSID of the field data, or 0 if unknown.
+    */
+   public int getCcsid() {
+      return ccsid;
+   }
+
+   /**
+    * Checks if the field is variable length, thus its data is preceded by a 2-byte length.
+    * The field length includes those 2 bytes.
+    */
+   public boolean isVariableLength() {
+      return isVariableLength;
+   }
+
    public static DataType getEnumDataType(final String apiDataType) {
       switch (apiDataType.toUpperCase()) {
          case "A":
@@ -0,0 +1,479 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.CharConverter;
+
+import lppedd.j.api.files.JField.DataType;
+
+/**
+ * Decodes fields straight from the raw bytes of a record, without building a JT400 {@code Record}.<br>
+ * It is compiled once per {@link JRecordFormat}, with the buffer offset, length, type and scale of each field,
+ * and the character converter of each character field.
+ * <p>
+ * Numeric fields are decoded without boxing: {@link #getDecimalUnscaled(byte[], int)} returns the digits
+ * as a {@code long}, to be combined with {@link #getScale(int)}. Fields of more than 18 digits are
+ * available only through {@link #getBigDecimal(byte[], int)}.
+ * <p>
+ * A decoder holds no state besides the compiled layout, so it can be shared between threads.
+ *
+ * @author Edoardo Luppi
+ */
+public final class JRecordDecoder
+{
+   private static final int MAX_LONG_DIGITS = 18;
+   private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+
+   static {
+      POWERS_OF_TEN[0] = 1;
+
+      for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+         POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+      }
+   }
+
+   private final JRecordFormat recordFormat;
+   private final DataType[] types;
+   private final int[] offsets;
+   private final int[] lengths;
+   private final int[] digits;
+   private final int[] scales;
+   private final boolean[] variableLengths;
+   private final CharConverter[] converters;
+   private final int recordLength;
+
+   private JRecordDecoder(final JRecordFormat recordFormat) throws UnsupportedEncodingException {
+      final List<JField> fields = recordFormat.getFields();
+      final int size = fields.size();
+      final AS400 as400 = recordFormat.getParent().getConnection().getAs400();
+      final Map<Integer, CharConverter> convertersByCcsid = new HashMap<>(4);
+
+      this.recordFormat = recordFormat;
+      types = new DataType[size];
+      offsets = new int[size];
+      lengths = new int[size];
+      digits = new int[size];
+      scales = new int[size];
+      variableLengths = new boolean[size];
+      converters = new CharConverter[size];
+
+      int position = 0;
+
+      for (int i = 0; i < size; i++) {
+         final JField field = fields.get(i);
+         types[i] = field.getDataType();
+         lengths[i] = field.getLength();
+         digits[i] = field.getDigits();
+         scales[i] = field.getDecimalPositions();
+         variableLengths[i] = field.isVariableLength();
+
+         // Without the buffer position fields are assumed to be contiguous
+         offsets[i] = field.getBufferPosition() > 0 ? field.getBufferPosition() - 1 : position;
+         position = offsets[i] + lengths[i];
+
+         if (isCharacter(types[i])) {
+            // 65535 means binary data, which is converted with the job CCSID anyway
+            final int ccsid = field.getCcsid() > 0 && field.getCcsid() != 65535 ? field.getCcsid() : as400.getCcsid();
+            CharConverter converter = convertersByCcsid.get(ccsid);
+
+            if (converter == null) {
+               converter = new CharConverter(ccsid, as400);
+               convertersByCcsid.put(ccsid, converter);
+            }
+
+            converters[i] = converter;
+         }
+      }
+
+      recordLength = position;
+   }
+
+   /**
+    * Compiles the decoder of a record format.
+    *
+    * @return The decoder, or null if the character data of the record format can't be converted
+    */
+   public static JRecordDecoder compile(final JRecordFormat recordFormat) {
+      try {
+         return new JRecordDecoder(recordFormat);
+      } catch (final UnsupportedEncodingException e) {
+         e.printStackTrace();
+      }
+
+      return null;
+   }
+
+   public JRecordFormat getRecordFormat() {
+      return recordFormat;
+   }
+
+   /**
+    * Returns the number of fields.
+    */
+   public int getFieldCount() {
+      return types.length;
+   }
+
+   /**
+    * Returns the position of a field, or -1 if not present.
+    */
+   public int indexOf(final String fieldName) {
+      return recordFormat.indexOf(fieldName);
+   }
+
+   /**
+    * Returns the record length, as covered by the fields.
+    */
+   public int getRecordLength() {
+      return recordLength;
+   }
+
+   /**
+    * Returns the offset of a field in the record buffer.
+    */
+   public int getOffset(final int field) {
+      return offsets[field];
+   }
+
+   /**
+    * Returns the data type of a field.
+    */
+   public DataType getDataType(final int field) {
+      return types[field];
+   }
+
+   /**
+    * Returns the length of a field in the record buffer, in bytes.
+    */
+   public int getLength(final int field) {
+      return lengths[field];
+   }
+
+   /**
+    * Returns the number of digits of a numeric field.
+    */
+   public int getDigits(final int field) {
+      return digits[field];
+   }
+
+   /**
+    * Returns the number of decimal positions of a field.
+    */
+   public int getScale(final int field) {
+      return scales[field];
+   }
+
+   /**
+    * Checks if a field is zoned, packed or binary.
+    */
+   public boolean isDecimal(final int field) {
+      return types[field] == DataType.ZONED || types[field] == DataType.PACKED || types[field] == DataType.BINARY;
+   }
+
+   /**
+    * Returns the digits of a zoned, packed or binary field, ignoring the decimal point.
+    *
+    * @throws ArithmeticException
+    *         If the field has more than 18 digits
+    */
+   public long getDecimalUnscaled(final byte[] record, final int field) {
+      final int offset = offsets[field];
+
+      switch (types[field]) {
+         case ZONED:
+            checkLongDigits(field);
+            return decodeZoned(record, offset, lengths[field]);
+         case PACKED:
+            checkLongDigits(field);
+            return decodePacked(record, offset, lengths[field]);
+         case BINARY:
+            return decodeBinary(record, offset, lengths[field]);
+         default:
+            throw new IllegalArgumentException("Field " + recordFormat.getFields().get(field) + " is not decimal");
+      }
+   }
+
+   /**
+    * Returns the integer part of a numeric field.
+    */
+   public long getLong(final byte[] record, final int field) {
+      if (types[field] == DataType.FLOAT) {
+         return (long) getDouble(record, field);
+      }
+
+      return getDecimalUnscaled(record, field) / POWERS_OF_TEN[scales[field]];
+   }
+
+   /**
+    * Returns the value of a numeric field as a {@code double}.
+    */
+   public double getDouble(final byte[] record, final int field) {
+      if (types[field] == DataType.FLOAT) {
+         final int offset = offsets[field];
+         return lengths[field] == 4
+               ? Float.intBitsToFloat((int) decodeBinary(record, offset, 4))
+               : Double.longBitsToDouble(decodeBinary(record, offset, 8));
+      }
+
+      return (double) getDecimalUnscaled(record, field) / POWERS_OF_TEN[scales[field]];
+   }
+
+   /**
+    * Returns the value of a numeric field.
+    */
+   public BigDecimal getBigDecimal(final byte[] record, final int field) {
+      if (types[field] == DataType.FLOAT) {
+         return BigDecimal.valueOf(getDouble(record, field));
+      }
+
+      if (types[field] != DataType.BINARY && digits[field] > MAX_LONG_DIGITS) {
+         return decodeLargeDecimal(record, offsets[field], lengths[field], types[field] == DataType.ZONED, scales[field]);
+      }
+
+      return BigDecimal.valueOf(getDecimalUnscaled(record, field), scales[field]);
+   }
+
+   /**
+    * Returns the value of a character, date or time field, with its trailing blanks.
+    * Variable length fields return only their current length.
+    */
+   public String getString(final byte[] record, final int field) {
+      if (converters[field] == null) {
+         throw new IllegalArgumentException("Field " + recordFormat.getFields().get(field) + " is not a character field");
+      }
+
+      if (variableLengths[field]) {
+         return converters[field].byteArrayToString(record, offsets[field] + 2, decodeVariableLength(record, offsets[field], lengths[field]));
+      }
+
+      return converters[field].byteArrayToString(record, offsets[field], lengths[field]);
+   }
+
+   /**
+    * Returns the value of a date field in the *ISO, *JIS, *USA or *EUR format.
+    *
+    * @return The date, or null if in another format or not valid
+    */
+   public LocalDate getLocalDate(final byte[] record, final int field) {
+      return decodeLocalDate(record, offsets[field], lengths[field]);
+   }
+
+   /**
+    * Returns the value of a time field in the *ISO, *JIS, *EUR or *HMS format.
+    *
+    * @return The time, or null if in another format, like *USA, or not valid
+    */
+   public LocalTime getLocalTime(final byte[] record, final int field) {
+      return decodeLocalTime(record, offsets[field], lengths[field]);
+   }
+
+   private void checkLongDigits(final int field) {
+      if (digits[field] > MAX_LONG_DIGITS) {
+         throw new ArithmeticException("Field " + recordFormat.getFields().get(field) + " has more than " + MAX_LONG_DIGITS + " digits");
+      }
+   }
+
+   /**
+    * Decodes a zoned or packed value of any number of digits.
+    */
+   static BigDecimal decodeLargeDecimal(final byte[] record, final int offset, final int length, final boolean isZoned, final int scale) {
+      final char[] chars = new char[length * 2 + 1];
+      int size = 0;
+      boolean isNegative;
+
+      if (isZoned) {
+         for (int i = 0; i < length; i++) {
+            chars[++size] = (char) ('0' + (record[offset + i] & 0x0F));
+         }
+
+         isNegative = isNegativeSign((record[offset + length - 1] >> 4) & 0x0F);
+      } else {
+         for (int i = 0; i < length; i++) {
+            chars[++size] = (char) ('0' + ((record[offset + i] >> 4) & 0x0F));
+
+            if (i < length - 1) {
+               chars[++size] = (char) ('0' + (record[offset + i] & 0x0F));
+            }
+         }
+
+         isNegative = isNegativeSign(record[offset + length - 1] & 0x0F);
+      }
+
+      chars[0] = isNegative ? '-' : '+';
+      return new BigDecimal(new BigInteger(new String(chars, 0, size + 1)), scale);
+   }
+
+   static long decodeZoned(final byte[] record, final int offset, final int length) {
+      long value = 0;
+
+      for (int i = 0; i < length; i++) {
+         value = value * 10 + (record[offset + i] & 0x0F);
+      }
+
+      return isNegativeSign((record[offset + length - 1] >> 4) & 0x0F) ? -value : value;
+   }
+
+   static long decodePacked(final byte[] record, final int offset, final int length) {
+      long value = 0;
+      final int last = offset + length - 1;
+
+      for (int i = offset; i < last; i++) {
+         value = value * 100 + ((record[i] >> 4) & 0x0F) * 10 + (record[i] & 0x0F);
+      }
+
+      value = value * 10 + ((record[last] >> 4) & 0x0F);
+      return isNegativeSign(record[last] & 0x0F) ? -value : value;
+   }
+
+   static long decodeBinary(final byte[] record, final int offset, final int length) {
+      // Big-endian, sign extended from the first byte
+      long value = record[offset];
+
+      for (int i = 1; i < length; i++) {
+         value = value << 8 | record[offset + i] & 0xFF;
+      }
+
+      return value;
+   }
+
+   /**
+    * Decodes EBCDIC digits.
+    */
+   static int decodeDigits(final byte[] record, final int offset, final int length) {
+      int value = 0;
+
+      for (int i = 0; i < length; i++) {
+         value = value * 10 + (record[offset + i] & 0x0F);
+      }
+
+      return value;
+   }
+
+   /**
+    * Returns the current length of a variable length field, from its 2-byte prefix.
+    * A length over the allocated length is truncated.
+    *
+    * @param length
+    *        The field length in the buffer, prefix included
+    */
+   static int decodeVariableLength(final byte[] record, final int offset, final int length) {
+      return Math.max(Math.min((int) decodeBinary(record, offset, 2) & 0xFFFF, length - 2), 0);
+   }
+
+   /**
+    * Decodes an EBCDIC date in the *ISO, *JIS, *USA or *EUR format.
+    *
+    * @return The date, or null if in another format or not valid
+    */
+   static LocalDate decodeLocalDate(final byte[] record, final int offset, final int length) {
+      if (length != 10) {
+         return null;
+      }
+
+      try {
+         if (isLayout(record, offset, 10, 4, 7)) {
+            // yyyy-mm-dd
+            return LocalDate.of(
+                  decodeDigits(record, offset, 4),
+                  decodeDigits(record, offset + 5, 2),
+                  decodeDigits(record, offset + 8, 2));
+         }
+
+         if (isLayout(record, offset, 10, 2, 5)) {
+            final int first = decodeDigits(record, offset, 2);
+            final int second = decodeDigits(record, offset + 3, 2);
+            final int year = decodeDigits(record, offset + 6, 4);
+
+            // mm/dd/yyyy or dd.mm.yyyy
+            return record[offset + 2] == (byte) 0x61 ? LocalDate.of(year, first, second) : LocalDate.of(year, second, first);
+         }
+      } catch (final DateTimeException e) {
+         // Not a valid date
+      }
+
+      return null;
+   }
+
+   /**
+    * Decodes an EBCDIC time in the *ISO, *JIS, *EUR or *HMS format.
+    *
+    * @return The time, or null if in another format, like *USA, or not valid
+    */
+   static LocalTime decodeLocalTime(final byte[] record, final int offset, final int length) {
+      // hh.mm.ss or hh:mm:ss, while *USA is hh:mm AM
+      if (length != 8 || !isLayout(record, offset, 8, 2, 5)) {
+         return null;
+      }
+
+      try {
+         return LocalTime.of(
+               decodeDigits(record, offset, 2),
+               decodeDigits(record, offset + 3, 2),
+               decodeDigits(record, offset + 6, 2));
+      } catch (final DateTimeException e) {
+         // Not a valid time
+      }
+
+      return null;
+   }
+
+   /**
+    * Checks that a value is made of EBCDIC digits, except for the same separator at the two specified positions.
+    */
+   private static boolean isLayout(final byte[] record, final int offset, final int length, final int separator1, final int separator2) {
+      if (record[offset + separator1] != record[offset + separator2]) {
+         return false;
+      }
+
+      for (int i = 0; i < length; i++) {
+         final int b = record[offset + i] & 0xFF;
+         final boolean isDigit = b >= 0xF0 && b <= 0xF9;
+
+         if (isDigit == (i == separator1 || i == separator2)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static boolean isNegativeSign(final int sign) {
+      return sign == 0x0D || sign == 0x0B;
+   }
+
+   private static boolean isCharacter(final DataType type) {
+      return type == DataType.ALPHANUMERIC || type == DataType.DATE || type == DataType.TIME;
+   }
+}
@@ -25,6 +25,27 @@ package lppedd.j.api.files;
 
 import java.util.List;
 
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Bin2;
+import com.ibm.as400.access.AS400Bin4;
+import com.ibm.as400.access.AS400Bin8;
+import com.ibm.as400.access.AS400ByteArray;
+import com.ibm.as400.access.AS400Float4;
+import com.ibm.as400.access.AS400Float8;
+import com.ibm.as400.access.AS400PackedDecimal;
+import com.ibm.as400.access.AS400Text;
+import com.ibm.as400.access.AS400ZonedDecimal;
+import com.ibm.as400.access.BinaryFieldDescription;
+import com.ibm.as400.access.CharacterFieldDescription;
+import com.ibm.as400.access.DateFieldDescription;
+import com.ibm.as400.access.FieldDescription;
+import com.ibm.as400.access.FloatFieldDescription;
+import com.ibm.as400.access.HexFieldDescription;
+import com.ibm.as400.access.PackedDecimalFieldDescription;
+import com.ibm.as400.access.RecordFormat;
+import com.ibm.as400.access.TimeFieldDescription;
+import com.ibm.as400.access.ZonedDecimalFieldDescription;
+
 /**
  * @author Edoardo Luppi
  */
@@ -58,8 +79,94 @@ public class JRecordFormat
       return _fields;
    }
 
+   /**
+    * Returns the position of a field, or -1 if not present.
+    */
+   public int indexOf(final String fieldName) {
+      for (int i = 0; i < _fields.size(); i++) {
+         if (_fields.get(i).getName().equalsIgnoreCase(fieldName)) {
+            return i;
+         }
+      }
+
+      return -1;
+   }
+
+   /**
+    * Builds the equivalent JT400 {@link RecordFormat}, for record-level access.<br>
+    * Fields of unknown or graphic type are described as hexadecimal.
+    *
+    * @param keyFields
+    *        The key fields, in order, for keyed access
+    */
+   public RecordFormat toRecordFormat(final String... keyFields) {
+      final AS400 as400 = _parent.getConnection().getAs400();
+      final RecordFormat recordFormat = new RecordFormat(_name);
+
+      for (final JField field : _fields) {
+         recordFormat.addFieldDescription(toFieldDescription(as400, field));
+      }
+
+      for (final String keyField : keyFields) {
+         recordFormat.addKeyFieldDescription(keyField.toUpperCase());
+      }
+
+      return recordFormat;
+   }
+
    @Override
    public String toString() {
       return _name;
    }
+
+   private static FieldDescription toFieldDescription(final AS400 as400, final JField field) {
+      final String name = field.getName();
+      final int length = field.getLength();
+
+      switch (field.getDataType()) {
+         case ALPHANUMERIC:
+            final CharacterFieldDescription description = new CharacterFieldDescription(toText(as400, field), name);
+            description.setVariableLength(field.isVariableLength());
+            return description;
+         case ZONED:
+            return new ZonedDecimalFieldDescription(new AS400ZonedDecimal(field.getDigits(), field.getDecimalPositions()), name);
+         case PACKED:
+            return new PackedDecimalFieldDescription(new AS400PackedDecimal(field.getDigits(), field.getDecimalPositions()), name);
+         case BINARY:
+            switch (length) {
+               case 2:
+                  return new BinaryFieldDescription(new AS400Bin2(), name);
+               case 4:
+                  return new BinaryFieldDescription(new AS400Bin4(), name);
+               case 8:
+                  return new BinaryFieldDescription(new AS400Bin8(), name);
+               default:
+                  break;
+            }
+
+            break;
+         case FLOAT:
+            return length == 4
+                  ? new FloatFieldDescription(new AS400Float4(), name)
+                  : new FloatFieldDescription(new AS400Float8(), name);
+         case DATE:
+            return new DateFieldDescription(toText(as400, field), name);
+         case TIME:
+            return new TimeFieldDescription(toText(as400, field), name);
+         default:
+            break;
+      }
+
+      return new HexFieldDescription(new AS400ByteArray(length), name);
+   }
+
+   /**
+    * Returns the converter of a character field, with the field CCSID if tagged, or the job CCSID otherwise.
+    * The length of variable length fields excludes their 2-byte length.
+    */
+   private static AS400Text toText(final AS400 as400, final JField field) {
+      final int ccsid = field.getCcsid();
+      final int length = field.isVariableLength() ? field.getLength() - 2 : field.getLength();
+      return ccsid > 0 && ccsid != 65535 ? new AS400Text(length, ccsid, as400) : new AS400Text(length, as400);
+   }
 }
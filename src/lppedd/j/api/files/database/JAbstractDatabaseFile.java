@@ -25,6 +25,7 @@ package lppedd.j.api.files.database;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -42,20 +43,17 @@ import com.ibm.as400.access.ProgramCall;
 import com.ibm.as400.access.ProgramParameter;
 import com.ibm.as400.access.QSYSObjectPathName;
 import com.ibm.as400.access.SequentialFile;
-import com.ibm.as400.access.UserSpace;
 
 import lppedd.j.api.JConnection;
 import lppedd.j.api.JType;
 import lppedd.j.api.factories.JObjectFactory;
 import lppedd.j.api.files.JAbstractFile;
 import lppedd.j.api.ibm.JApi;
-import lppedd.j.api.ibm.JApiResult;
+import lppedd.j.api.ibm.JApiList;
 import lppedd.j.api.members.JAbstractMember;
 import lppedd.j.api.members.JMember;
 import lppedd.j.api.members.JNullMember;
 import lppedd.j.api.members.JSqlMember;
-import lppedd.j.api.misc.JUtil;
-import lppedd.j.api.misc.Util;
 import lppedd.j.api.objects.JJournal;
 import lppedd.j.api.objects.JNullObject;
 import lppedd.j.api.objects.JObject;
@@ -72,58 +70,30 @@ public abstract class JAbstractDatabaseFile extends JAbstractFile implements JDa
 
    protected JJournal journal;
 
+   private boolean isSqlAttributeRetrieved;
+
    protected JAbstractDatabaseFile(final JConnection connection, final String name, final String library) {
       super(connection, name, library);
+   }
 
-      if (exists()) {
-         retriveFileDescription();
-      }
+   @Override
+   public String getAttribute() {
+      retrieveSqlAttribute();
+      return super.getAttribute();
    }
 
    @Override
    public String[] getMembers() {
-      final JConnection connection = getConnection();
-      final String userSpaceName = JUtil.getRandomString(10);
-      final String userSpaceAttribute = "USRSPC";
-      final UserSpace userSpace = new UserSpace(connection.getAs400(), QSYSObjectPathName.toPath("QTEMP", userSpaceName, userSpaceAttribute));
-      userSpace.setMustUseProgramCall(true);
-      userSpace.setMustUseSockets(true);
+      try (final JApiList membersList = JApi.QUSLMBR(getConnection(), "MBRL0100", "*ALL", this)) {
+         final String[] members = new String[membersList.size()];
+         int i = 0;
 
-      try {
-         if (userSpace.exists()) {
-            userSpace.delete();
+         while (membersList.hasNext()) {
+            members[i++] = ((String) CHAR10.toObject(membersList.next(), 0)).trim();
          }
 
-         userSpace.create(20000, true, userSpaceAttribute, (byte) 0x00, "Userspace per elenco membri", "*ALL");
-
-         final ProgramParameter[] parameters = new ProgramParameter[] {
-               new ProgramParameter(CHAR20.toBytes(JUtil.getQualifiedPath("QTEMP", userSpaceName))),
-               new ProgramParameter(CHAR8.toBytes("MBRL0100")),
-               new ProgramParameter(CHAR20.toBytes(getQualifiedPath())),
-               new ProgramParameter(CHAR10.toBytes("*ALL")),
-               new ProgramParameter(CHAR1.toBytes("1")),
-               new ErrorCodeParameter()
-         };
-
-         final ProgramCall pgmCall = new ProgramCall(connection.getAs400(), "/QSYS.LIB/QUSLMBR.PGM", parameters);
-
-         if (pgmCall.run() && pgmCall.getMessageList().length == 0) {
-            return Util.splitString(userSpace.read(512, userSpace.getLength()).trim(), 10);
-         }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException e) {
-         e.printStackTrace();
-      } finally {
-         try {
-            if (userSpace != null) {
-               userSpace.close();
-               userSpace.delete();
-            }
-         } catch (final IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException e) {
-            e.printStackTrace();
-         }
+         return i == members.length ? members : Arrays.copyOf(members, i);
       }
-
-      return new String[0];
    }
 
    @Override
@@ -132,70 +102,37 @@ public abstract class JAbstractDatabaseFile extends JAbstractFile implements JDa
          return Collections.emptyList();
       }
 
-      final JConnection connection = getConnection();
-      final String userSpaceName = JUtil.getRandomString(10);
-      final UserSpace userSpace = new UserSpace(connection.getAs400(), "/QSYS.LIB/" + "QTEMP" + ".LIB/" + userSpaceName + "." + "USRSPC");
-      userSpace.setMustUseProgramCall(true);
-      userSpace.setMustUseSockets(true);
-
-      try {
-         if (userSpace.exists()) {
-            userSpace.delete();
-         }
-
-         userSpace.create(20000, true, "USRSPC", (byte) 0x00, "Userspace per DSPDBR", "*ALL");
-
-         final ProgramParameter[] parameters = new ProgramParameter[] {
-               new ProgramParameter(CHAR20.toBytes(JUtil.getQualifiedPath("QTEMP", userSpaceName))),
-               new ProgramParameter(CHAR8.toBytes("DBRL0100")),
-               new ProgramParameter(CHAR20.toBytes(JUtil.getQualifiedPath(library, name))),
-               new ProgramParameter(CHAR10.toBytes("*FIRST")),
-               new ProgramParameter(CHAR10.toBytes("")),
-               new ErrorCodeParameter()
-         };
-
-         final ProgramCall pgmCall = new ProgramCall(connection.getAs400(), "/QSYS.LIB/QDBLDBR.PGM", parameters);
-
-         if (pgmCall.run() && pgmCall.getMessageList().length < 1) {
-            final String[] dirtyData = Util.splitString(userSpace.read(260, userSpace.getLength()).trim(), 320);
+      try (final JApiList relationsList = JApi.QDBLDBR(getConnection(), "DBRL0100", "*FIRST", this)) {
+         final List<JObject> relationships = new ArrayList<>(relationsList.size());
 
-            if (dirtyData.length > 0 && !dirtyData[0].contains("*NONE")) {
-               final List<JObject> relationships = new ArrayList<>(dirtyData.length);
+         while (relationsList.hasNext()) {
+            final byte[] relationEntry = relationsList.next();
+            final String dependentName = ((String) CHAR10.toObject(relationEntry, 20)).trim();
 
-               for (final String element : dirtyData) {
-                  final JObject file = JObjectFactory.get(
-                        getConnection(),
-                        element.substring(20, 30).trim(),
-                        element.substring(30, 40).trim(),
-                        JType.FILE);
+            // Senza dipendenze viene restituito un unico elemento *NONE
+            if (dependentName.startsWith("*NONE")) {
+               continue;
+            }
 
-                  if (!(file instanceof JNullObject) && !relationships.contains(file)) {
-                     relationships.add(file);
-                  }
-               }
+            final JObject file = JObjectFactory.get(
+                  getConnection(),
+                  dependentName,
+                  ((String) CHAR10.toObject(relationEntry, 30)).trim(),
+                  JType.FILE);
 
-               return relationships;
+            if (!(file instanceof JNullObject) && !relationships.contains(file)) {
+               relationships.add(file);
             }
          }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
-         e.printStackTrace();
-      } finally {
-         try {
-            if (userSpace != null) {
-               userSpace.close();
-               userSpace.delete();
-            }
-         } catch (final IOException | AS400SecurityException | ErrorCompletingRequestException | InterruptedException | ObjectDoesNotExistException e) {
-            e.printStackTrace();
-         }
-      }
 
-      return Collections.emptyList();
+         return relationships;
+      }
    }
 
    @Override
    public Optional<JJournal> getJournal() {
       if (journal == null) {
+         final byte[] FILD0100 = getFILD0100();
          final int offset = BinaryConverter.byteArrayToInt(FILD0100, 378);
 
          if (offset > 0) {
@@ -310,7 +247,7 @@ public abstract class JAbstractDatabaseFile extends JAbstractFile implements JDa
 
       try {
          if (pgmCall.run() && pgmCall.getMessageList().length == 0) {
-            final JAbstractMember sqlMember = new JSqlMember(null, member, object, library);
+            final JAbstractMember sqlMember = new JSqlMember(connection, member, object, library);
             sqlMember.setSourceType("SQL");
             sqlMember.persist();
             return sqlMember;
@@ -322,15 +259,53 @@ public abstract class JAbstractDatabaseFile extends JAbstractFile implements JDa
       return JNullMember.getInstance();
    }
 
-   private final void retriveFileDescription() {
-      final JConnection connection = getConnection();
-      final JApiResult output = JApi.QUSRMBRD(connection, "MBRD0300", this);
+   /**
+    * Returns the QDBRTVFD FILD0100 description, retrieving it the first time.
+    */
+   protected final byte[] getFILD0100() {
+      if (FILD0100 == null) {
+         FILD0100 = JApi.QDBRTVFD(getConnection(), "FILD0100", this).getValue();
+      }
+
+      return FILD0100;
+   }
+
+   /**
+    * Returns the QDBRTVFD FILD0200 description, retrieving it the first time.
+    */
+   protected final byte[] getFILD0200() {
+      if (FILD0200 == null) {
+         FILD0200 = JApi.QDBRTVFD(getConnection(), "FILD0200", this).getValue();
+      }
+
+      return FILD0200;
+   }
+
+   /**
+    * Returns the QDBRTVFD FILD0400 description, retrieving it the first time.
+    */
+   protected final byte[] getFILD0400() {
+      if (FILD0400 == null) {
+         FILD0400 = JApi.QDBRTVFD(getConnection(), "FILD0400", this).getValue();
+      }
 
-      if (output.getMessages().length != 0) {
+      return FILD0400;
+   }
+
+   /**
+    * Replaces the object attribute with the SQL one (e.g. TABLE, VIEW, INDEX), if any.
+    */
+   private void retrieveSqlAttribute() {
+      if (isSqlAttributeRetrieved) {
          return;
       }
 
-      MBRD0300 = output.getValue();
+      isSqlAttributeRetrieved = true;
+      final byte[] MBRD0300 = getMBRD0300();
+
+      if (MBRD0300 == null) {
+         return;
+      }
 
       // Eventuale attributo SQL
       final String attribute = CHAR10.toObject(MBRD0300, 268).toString().trim();
@@ -338,9 +313,5 @@ public abstract class JAbstractDatabaseFile extends JAbstractFile implements JDa
       if (!attribute.isEmpty()) {
          this.attribute = attribute;
       }
-
-      FILD0100 = JApi.QDBRTVFD(connection, "FILD0100", this).getValue();
-      FILD0200 = JApi.QDBRTVFD(connection, "FILD0200", this).getValue();
-      FILD0400 = JApi.QDBRTVFD(connection, "FILD0400", this).getValue();
    }
 }
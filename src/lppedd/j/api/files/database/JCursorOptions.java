@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+/**
+ * Options of a {@link JRecordCursor}.
+ *
+ * @author Edoardo Luppi
+ */
+public class JCursorOptions
+{
+   /**
+    * Default number of records fetched with a single call.
+    */
+   public static final int DEFAULT_BLOCKING_FACTOR = 500;
+
+   private int blockingFactor = DEFAULT_BLOCKING_FACTOR;
+   private String recordFormat;
+   private boolean isKeyed;
+   private String[] keyFields = new String[0];
+
+   /**
+    * Sets the number of records fetched with a single call when reading forward.
+    */
+   public JCursorOptions setBlockingFactor(final int blockingFactor) {
+      this.blockingFactor = Math.max(blockingFactor, 1);
+      return this;
+   }
+
+   /**
+    * Sets the record format to use. By default the first record format of the file is used.
+    */
+   public JCursorOptions setRecordFormat(final String recordFormat) {
+      this.recordFormat = recordFormat;
+      return this;
+   }
+
+   /**
+    * Requests a keyed cursor, which reads records by key order and can be positioned by key.
+    *
+    * @param keyFields
+    *        The key fields, in order. If none, the key of the file is retrieved from the system
+    */
+   public JCursorOptions setKeyed(final String... keyFields) {
+      isKeyed = true;
+      this.keyFields = keyFields;
+      return this;
+   }
+
+   public int getBlockingFactor() {
+      return blockingFactor;
+   }
+
+   public String getRecordFormat() {
+      return recordFormat;
+   }
+
+   public boolean isKeyed() {
+      return isKeyed;
+   }
+
+   public String[] getKeyFields() {
+      return keyFields;
+   }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+import java.util.function.Consumer;
+
+/**
+ * Options of a physical file export, see {@link JPhysicalFile#export(lppedd.j.api.JConnectionPool, java.nio.file.Path, JExportOptions)}.
+ *
+ * @author Edoardo Luppi
+ */
+public class JExportOptions
+{
+   /**
+    * Default number of relative record numbers covered by a single partition.
+    */
+   public static final int DEFAULT_PARTITION_SIZE = 100_000;
+
+   /**
+    * Default memory used by all the workers together, in bytes.
+    */
+   public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+   public enum Format
+   {
+      /**
+       * Text, one line per record, with a header line of field names.
+       */
+      CSV,
+
+      /**
+       * Binary columnar, in row groups which keep the host bytes of each field.
+       */
+      BINARY
+   }
+
+   private Format format = Format.CSV;
+   private int partitionSize = DEFAULT_PARTITION_SIZE;
+   private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+   private String recordFormat;
+   private String[] members = new String[0];
+   private char separator = ',';
+   private Consumer<JExportProgress> progressListener;
+
+   /**
+    * Sets the output format. By default records are written as CSV.
+    */
+   public JExportOptions setFormat(final Format format) {
+      this.format = format;
+      return this;
+   }
+
+   /**
+    * Sets the number of relative record numbers covered by a single partition.
+    * Smaller partitions balance the workers better, at the cost of more output files.
+    */
+   public JExportOptions setPartitionSize(final int partitionSize) {
+      this.partitionSize = Math.max(partitionSize, 1);
+      return this;
+   }
+
+   /**
+    * Sets the memory, in bytes, shared by the workers for fetched records and output buffers.
+    */
+   public JExportOptions setMemoryBudget(final long memoryBudget) {
+      this.memoryBudget = Math.max(memoryBudget, 1);
+      return this;
+   }
+
+   /**
+    * Sets the record format to use. By default the first record format of the file is used.
+    */
+   public JExportOptions setRecordFormat(final String recordFormat) {
+      this.recordFormat = recordFormat;
+      return this;
+   }
+
+   /**
+    * Sets the members to export. By default all the members are exported.<br>
+    * Names are not case sensitive. The export fails if a member doesn't exist.
+    */
+   public JExportOptions setMembers(final String... members) {
+      this.members = new String[members.length];
+
+      for (int i = 0; i < members.length; i++) {
+         this.members[i] = members[i].trim().toUpperCase();
+      }
+
+      return this;
+   }
+
+   /**
+    * Sets the CSV field separator. By default a comma.
+    */
+   public JExportOptions setSeparator(final char separator) {
+      this.separator = separator;
+      return this;
+   }
+
+   /**
+    * Sets the listener notified each time a partition is completed.
+    * It is called concurrently by the workers.
+    */
+   public JExportOptions setProgressListener(final Consumer<JExportProgress> progressListener) {
+      this.progressListener = progressListener;
+      return this;
+   }
+
+   public Format getFormat() {
+      return format;
+   }
+
+   public int getPartitionSize() {
+      return partitionSize;
+   }
+
+   public long getMemoryBudget() {
+      return memoryBudget;
+   }
+
+   public String getRecordFormat() {
+      return recordFormat;
+   }
+
+   public String[] getMembers() {
+      return members;
+   }
+
+   public char getSeparator() {
+      return separator;
+   }
+
+   public Consumer<JExportProgress> getProgressListener() {
+      return progressListener;
+   }
+}
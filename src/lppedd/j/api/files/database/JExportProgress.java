@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+import java.nio.file.Path;
+
+/**
+ * The progress of a physical file export, at the completion of a partition.
+ *
+ * @author Edoardo Luppi
+ */
+public class JExportProgress
+{
+   private final String member;
+   private final Path output;
+   private final long partitionRecords;
+   private final int completedPartitions;
+   private final int totalPartitions;
+   private final long totalRecords;
+   private final long expectedRecords;
+
+   public JExportProgress(
+         final String member,
+         final Path output,
+         final long partitionRecords,
+         final int completedPartitions,
+         final int totalPartitions,
+         final long totalRecords,
+         final long expectedRecords) {
+      this.member = member;
+      this.output = output;
+      this.partitionRecords = partitionRecords;
+      this.completedPartitions = completedPartitions;
+      this.totalPartitions = totalPartitions;
+      this.totalRecords = totalRecords;
+      this.expectedRecords = expectedRecords;
+   }
+
+   /**
+    * Returns the member of the completed partition.
+    */
+   public String getMember() {
+      return member;
+   }
+
+   /**
+    * Returns the file written for the completed partition.
+    */
+   public Path getOutput() {
+      return output;
+   }
+
+   /**
+    * Returns the number of records written for the completed partition.
+    */
+   public long getPartitionRecords() {
+      return partitionRecords;
+   }
+
+   /**
+    * Returns the number of partitions completed so far, including this one.
+    */
+   public int getCompletedPartitions() {
+      return completedPartitions;
+   }
+
+   public int getTotalPartitions() {
+      return totalPartitions;
+   }
+
+   /**
+    * Returns the number of records written so far by all the workers.
+    */
+   public long getTotalRecords() {
+      return totalRecords;
+   }
+
+   /**
+    * Returns the number of active records of the exported members, at the start of the export.
+    */
+   public long getExpectedRecords() {
+      return expectedRecords;
+   }
+}
@@ -42,7 +42,7 @@ public class JLogicalFile extends JAbstractDatabaseFile
     * files.
     */
    public boolean hasJoinMember() {
-      return "1".equals(CHAR1.toObject(MBRD0300, 266));
+      return "1".equals(CHAR1.toObject(getMBRD0300(), 266));
    }
 
    @Override
@@ -23,16 +23,21 @@
  */
 package lppedd.j.api.files.database;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import com.ibm.as400.access.AS400Message;
 import com.ibm.as400.access.BinaryConverter;
+import com.ibm.as400.access.QSYSObjectPathName;
 
 import lppedd.j.api.JConnection;
+import lppedd.j.api.JConnectionPool;
 import lppedd.j.api.JType;
 import lppedd.j.api.factories.JObjectFactory;
+import lppedd.j.api.files.JRecordDecoder;
+import lppedd.j.api.files.JRecordFormat;
 import lppedd.j.api.misc.JUtil;
 import lppedd.j.api.objects.JProgram;
 import lppedd.j.api.objects.virtual.JTrigger;
@@ -113,6 +118,8 @@ public class JPhysicalFile extends JAbstractDatabaseFile
     * Returns the triggers attached to the physical file.
     */
    public List<JTrigger> getTriggers() {
+      final byte[] FILD0100 = getFILD0100();
+
       // Find Qdb_Qdbfphys offset
       int offset = BinaryConverter.byteArrayToInt(FILD0100, 364);
 
@@ -154,18 +161,89 @@ public class JPhysicalFile extends JAbstractDatabaseFile
       return Collections.emptyList();
    }
 
+   /**
+    * Opens a record-level cursor over a member, with the default options.
+    *
+    * @param member
+    *        The member name, or {@code *FIRST}
+    *
+    * @see #openCursor(String, JCursorOptions)
+    */
+   public JRecordCursor openCursor(final String member) {
+      return openCursor(member, new JCursorOptions());
+   }
+
+   /**
+    * Opens a record-level cursor over a member.<br>
+    * The member is actually opened at the first operation, and must be closed with {@link JRecordCursor#close()}.
+    *
+    * @param member
+    *        The member name, or {@code *FIRST}
+    * @param options
+    *        The cursor options
+    *
+    * @return The cursor, or null if the record format doesn't exist
+    */
+   public JRecordCursor openCursor(final String member, final JCursorOptions options) {
+      final JRecordFormat recordFormat = getRecordFormat(options.getRecordFormat());
+
+      if (recordFormat == null) {
+         return null;
+      }
+
+      return new JRecordCursor(getConnection(), QSYSObjectPathName.toPath(library, name, member, "MBR"), recordFormat, options);
+   }
+
+   /**
+    * Exports the members to local files, reading partitions of relative record numbers
+    * concurrently, one worker per connection of the pool.
+    *
+    * @param pool
+    *        The connection pool
+    * @param directory
+    *        The directory of the output files, created if missing
+    * @param options
+    *        The export options
+    *
+    * @return The number of records exported, or -1 if the export failed or a requested member doesn't exist.
+    *         The files of the partitions already exported are left in place
+    */
+   public long export(final JConnectionPool pool, final Path directory, final JExportOptions options) {
+      final JRecordFormat recordFormat = getRecordFormat(options.getRecordFormat());
+
+      if (recordFormat == null) {
+         return -1;
+      }
+
+      final JRecordDecoder decoder = JRecordDecoder.compile(recordFormat);
+      return decoder != null ? new JTableExporter(this, pool, directory, recordFormat, decoder, options).run() : -1;
+   }
+
+   /**
+    * Returns the record format with the specified name, or the first one if the name is null.
+    */
+   protected JRecordFormat getRecordFormat(final String recordFormatName) {
+      for (final JRecordFormat recordFormat : getRecordFormats()) {
+         if (recordFormatName == null || recordFormat.getName().equalsIgnoreCase(recordFormatName)) {
+            return recordFormat;
+         }
+      }
+
+      return null;
+   }
+
    /**
     * Returns if the physical file is a source file.
     */
    public boolean isSourceFile() {
-      return (FILD0100[8] & 0x08) != 0;
+      return (getFILD0100()[8] & 0x08) != 0;
    }
 
    /**
     * Returns if the physical file has multiple members.
     */
    public boolean isMultiMember() {
-      return BinaryConverter.byteArrayToUnsignedShort(FILD0100, 41) != 1;
+      return BinaryConverter.byteArrayToUnsignedShort(getFILD0100(), 41) != 1;
    }
 
    @Override
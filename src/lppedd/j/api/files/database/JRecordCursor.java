@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400Exception;
+import com.ibm.as400.access.AS400File;
+import com.ibm.as400.access.AS400FileRecordDescription;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.KeyedFile;
+import com.ibm.as400.access.Record;
+import com.ibm.as400.access.RecordFormat;
+import com.ibm.as400.access.SequentialFile;
+
+import lppedd.j.api.JConnection;
+import lppedd.j.api.files.JRecordFormat;
+
+/**
+ * A read-only, record-level cursor over a member of a physical file.<br>
+ * Records are read forward, fetched from the system in blocks as specified by the blocking factor.
+ * A keyed cursor reads in key order, and can also be positioned and read by key;
+ * an arrival sequence cursor can be positioned by relative record number.
+ * <p>
+ * The record format is built from the file {@link JRecordFormat}, and the member is opened at the first operation.
+ * The current record is exposed through a reusable {@link JRecordView}.
+ *
+ * @author Edoardo Luppi
+ */
+public class JRecordCursor implements AutoCloseable
+{
+   private final AS400File file;
+   private final JRecordFormat recordFormat;
+   private final JCursorOptions options;
+   private final JRecordView view;
+
+   private boolean isOpen;
+   private boolean isClosed;
+   private boolean hasFailed;
+
+   JRecordCursor(final JConnection connection, final String ifsPath, final JRecordFormat recordFormat, final JCursorOptions options) {
+      final AS400 as400 = connection.getAs400();
+      file = options.isKeyed() ? new KeyedFile(as400, ifsPath) : new SequentialFile(as400, ifsPath);
+      this.recordFormat = recordFormat;
+      this.options = options;
+      view = new JRecordView(recordFormat);
+   }
+
+   /**
+    * Moves to the next record.
+    *
+    * @return False if there are no more records, or if the member couldn't be read
+    */
+   public boolean next() {
+      if (!open()) {
+         return false;
+      }
+
+      try {
+         return setRecord(file.readNext());
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+         fail(e);
+      }
+
+      return false;
+   }
+
+   /**
+    * Positions the cursor before the first record with the specified key, so that
+    * {@link #next()} reads it. Valid only for keyed cursors.
+    *
+    * @param key
+    *        The key values, or a part of them starting from the first one
+    *
+    * @return False if there's no record with that key
+    */
+   public boolean positionCursor(final Object... key) {
+      if (!open()) {
+         return false;
+      }
+
+      try {
+         getKeyedFile().positionCursorBefore(key);
+         return true;
+      } catch (final AS400Exception e) {
+         // The key doesn't exist
+      } catch (AS400SecurityException | InterruptedException | IOException e) {
+         fail(e);
+      }
+
+      return false;
+   }
+
+   /**
+    * Positions the cursor before the specified record, so that {@link #next()} reads it.
+    * Valid only for arrival sequence cursors.
+    *
+    * @return False if the record doesn't exist
+    */
+   public boolean positionToRecord(final int recordNumber) {
+      if (!open()) {
+         return false;
+      }
+
+      if (!(file instanceof SequentialFile)) {
+         throw new IllegalStateException("The cursor is keyed");
+      }
+
+      try {
+         ((SequentialFile) file).positionCursorBefore(recordNumber);
+         return true;
+      } catch (final AS400Exception e) {
+         // The record doesn't exist
+      } catch (AS400SecurityException | InterruptedException | IOException e) {
+         fail(e);
+      }
+
+      return false;
+   }
+
+   /**
+    * Moves to the next record, if its key is equal to the specified one. Valid only for keyed cursors.
+    *
+    * @return False if the next record has another key
+    */
+   public boolean nextEqual(final Object... key) {
+      if (!open()) {
+         return false;
+      }
+
+      try {
+         return setRecord(getKeyedFile().readNextEqual(key));
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+         fail(e);
+      }
+
+      return false;
+   }
+
+   /**
+    * Moves to the first record with the specified key. Valid only for keyed cursors.
+    *
+    * @return False if there's no record with that key
+    */
+   public boolean read(final Object... key) {
+      if (!open()) {
+         return false;
+      }
+
+      try {
+         return setRecord(getKeyedFile().read(key));
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+         fail(e);
+      }
+
+      return false;
+   }
+
+   /**
+    * Returns the view of the current record.
+    */
+   public JRecordView getRecord() {
+      return view;
+   }
+
+   /**
+    * Checks if the cursor stopped because of an error.
+    */
+   public boolean hasFailed() {
+      return hasFailed;
+   }
+
+   @Override
+   public void close() {
+      if (isClosed) {
+         return;
+      }
+
+      isClosed = true;
+
+      try {
+         file.close();
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+         e.printStackTrace();
+      }
+   }
+
+   private boolean open() {
+      if (isClosed) {
+         return false;
+      }
+
+      if (isOpen) {
+         return true;
+      }
+
+      try {
+         String[] keyFields = options.getKeyFields();
+
+         // Without explicit key fields the key of the file is used
+         if (options.isKeyed() && keyFields.length == 0) {
+            keyFields = getFileKeyFields();
+         }
+
+         file.setRecordFormat(recordFormat.toRecordFormat(keyFields));
+         file.open(AS400File.READ_ONLY, options.getBlockingFactor(), AS400File.COMMIT_LOCK_LEVEL_NONE);
+         isOpen = true;
+         return true;
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException | PropertyVetoException e) {
+         fail(e);
+      }
+
+      return false;
+   }
+
+   private String[] getFileKeyFields() throws AS400Exception, AS400SecurityException, InterruptedException, IOException {
+      final RecordFormat[] recordFormats = new AS400FileRecordDescription(file.getSystem(), file.getPath()).retrieveRecordFormat();
+
+      for (final RecordFormat format : recordFormats) {
+         if (format.getName().equalsIgnoreCase(recordFormat.getName())) {
+            return format.getKeyFieldNames();
+         }
+      }
+
+      return new String[0];
+   }
+
+   private KeyedFile getKeyedFile() {
+      if (!(file instanceof KeyedFile)) {
+         throw new IllegalStateException("The cursor is not keyed");
+      }
+
+      return (KeyedFile) file;
+   }
+
+   private boolean setRecord(final Record record) {
+      if (record == null) {
+         return false;
+      }
+
+      view.setRecord(record);
+      return true;
+   }
+
+   private void fail(final Exception e) {
+      e.printStackTrace();
+      hasFailed = true;
+      close();
+   }
+}
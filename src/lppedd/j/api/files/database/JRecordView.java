@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+import java.io.CharConversionException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+
+import com.ibm.as400.access.Record;
+
+import lppedd.j.api.files.JRecordDecoder;
+import lppedd.j.api.files.JRecordFormat;
+
+/**
+ * A reusable view of the current record of a {@link JRecordCursor}.<br>
+ * The same instance is moved to every record read by the cursor, so values must be copied
+ * if they're needed after the cursor moves.
+ *
+ * @author Edoardo Luppi
+ */
+public class JRecordView
+{
+   private final JRecordFormat recordFormat;
+   private Record record;
+
+   JRecordView(final JRecordFormat recordFormat) {
+      this.recordFormat = recordFormat;
+   }
+
+   void setRecord(final Record record) {
+      this.record = record;
+   }
+
+   /**
+    * Returns the record format of the records.
+    */
+   public JRecordFormat getRecordFormat() {
+      return recordFormat;
+   }
+
+   /**
+    * Returns the relative record number of the current record.
+    */
+   public int getRecordNumber() {
+      return record.getRecordNumber();
+   }
+
+   /**
+    * Returns the value of a field, converted by its type.
+    *
+    * @return The value, or null if it couldn't be converted
+    */
+   public Object getObject(final int index) {
+      try {
+         return record.getField(index);
+      } catch (final UnsupportedEncodingException e) {
+         e.printStackTrace();
+      }
+
+      return null;
+   }
+
+   public Object getObject(final String fieldName) {
+      return getObject(indexOf(fieldName));
+   }
+
+   public String getString(final int index) {
+      final Object value = getObject(index);
+      return value != null ? value.toString() : null;
+   }
+
+   public String getString(final String fieldName) {
+      return getString(indexOf(fieldName));
+   }
+
+   /**
+    * Returns the value of a numeric field.
+    */
+   public BigDecimal getBigDecimal(final int index) {
+      final Object value = getObject(index);
+
+      if (value instanceof BigDecimal) {
+         return (BigDecimal) value;
+      }
+
+      if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+         return BigDecimal.valueOf(((Number) value).longValue());
+      }
+
+      return value instanceof Number ? BigDecimal.valueOf(((Number) value).doubleValue()) : null;
+   }
+
+   public BigDecimal getBigDecimal(final String fieldName) {
+      return getBigDecimal(indexOf(fieldName));
+   }
+
+   /**
+    * Returns the value of a numeric field, without its decimal positions.
+    */
+   public long getLong(final int index) {
+      final Object value = getObject(index);
+      return value instanceof Number ? ((Number) value).longValue() : 0;
+   }
+
+   public long getLong(final String fieldName) {
+      return getLong(indexOf(fieldName));
+   }
+
+   public int getInt(final int index) {
+      return (int) getLong(index);
+   }
+
+   public int getInt(final String fieldName) {
+      return getInt(indexOf(fieldName));
+   }
+
+   /**
+    * Returns the raw bytes of a field.
+    */
+   public byte[] getBytes(final int index) {
+      return record.getFieldAsBytes(index);
+   }
+
+   /**
+    * Returns the raw bytes of the whole record, to be read with a {@link JRecordDecoder}.
+    */
+   public byte[] getContents() {
+      try {
+         return record.getContents();
+      } catch (final CharConversionException | UnsupportedEncodingException e) {
+         e.printStackTrace();
+      }
+
+      return new byte[0];
+   }
+
+   /**
+    * Returns the underlying JT400 record.
+    */
+   public Record getRecord() {
+      return record;
+   }
+
+   private int indexOf(final String fieldName) {
+      final int index = recordFormat.indexOf(fieldName);
+
+      if (index < 0) {
+         throw new IllegalArgumentException("Field " + fieldName + " not found in record format " + recordFormat.getName());
+      }
+
+      return index;
+   }
+}
@@ -0,0 +1,103 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+import java.math.BigDecimal;
+
+/**
+ * A source line which matches a search.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceHit
+{
+   private final String library;
+   private final String file;
+   private final String member;
+   private final int recordNumber;
+   private final BigDecimal sequence;
+   private final String line;
+
+   public JSourceHit(
+         final String library,
+         final String file,
+         final String member,
+         final int recordNumber,
+         final BigDecimal sequence,
+         final String line) {
+      this.library = library;
+      this.file = file;
+      this.member = member;
+      this.recordNumber = recordNumber;
+      this.sequence = sequence;
+      this.line = line;
+   }
+
+   /**
+    * Returns the library of the source physical file.
+    */
+   public String getLibrary() {
+      return library;
+   }
+
+   /**
+    * Returns the name of the source physical file.
+    */
+   public String getFile() {
+      return file;
+   }
+
+   /**
+    * Returns the name of the member which contains the line.
+    */
+   public String getMember() {
+      return member;
+   }
+
+   /**
+    * Returns the relative record number of the line.
+    */
+   public int getRecordNumber() {
+      return recordNumber;
+   }
+
+   /**
+    * Returns the sequence number (SRCSEQ) of the line.
+    */
+   public BigDecimal getSequence() {
+      return sequence;
+   }
+
+   /**
+    * Returns the line (SRCDTA).
+    */
+   public String getLine() {
+      return line;
+   }
+
+   @Override
+   public String toString() {
+      return library + "/" + file + "(" + member + ") " + recordNumber + ": " + line;
+   }
+}
@@ -23,28 +23,37 @@
  */
 package lppedd.j.api.files.database;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import com.ibm.as400.access.AS400Exception;
 import com.ibm.as400.access.AS400File;
 import com.ibm.as400.access.AS400SecurityException;
-import com.ibm.as400.access.PrintObject;
-import com.ibm.as400.access.PrintParameterList;
 import com.ibm.as400.access.SequentialFile;
-import com.ibm.as400.access.SpooledFile;
-import com.ibm.as400.access.SpooledFileList;
 
 import lppedd.j.api.JConnection;
+import lppedd.j.api.JConnectionPool;
+import lppedd.j.api.JConnectionPool.JConnectionLease;
 import lppedd.j.api.JType;
 import lppedd.j.api.members.JDdsMember;
 import lppedd.j.api.members.JMember;
+import lppedd.j.api.members.JMemberSource;
 import lppedd.j.api.members.JNullMember;
 import lppedd.j.api.members.JProgramMember;
+import lppedd.j.api.members.JSourceReader;
 import lppedd.j.api.members.JSqlMember;
 import lppedd.j.api.misc.JUtil;
 
@@ -55,6 +64,21 @@ import lppedd.j.api.misc.JUtil;
  */
 public class JSourcePhysicalFile extends JPhysicalFile
 {
+   /**
+    * Number of members searched or downloaded with a single SQL statement.
+    */
+   private static final int SEARCH_BATCH_SIZE = 32;
+
+   /**
+    * Number of rows fetched with a single block.
+    */
+   private static final int SEARCH_FETCH_SIZE = 500;
+
+   /**
+    * Makes the alias names of concurrent searches and downloads unique.
+    */
+   private static final AtomicInteger SEARCH_SEQUENCE = new AtomicInteger();
+
    /**
     * Source member record length.
     */
@@ -111,17 +135,17 @@ public class JSourcePhysicalFile extends JPhysicalFile
             case SQLRPGLE:
             case RPGLE:
             case CLLE:
-               member = new JProgramMember(null, name, name, library);
+               member = new JProgramMember(getConnection(), name, this.name, library);
                break;
             case PF:
             case LF:
             case DS:
             case PRTF:
-               member = new JDdsMember(null, name, name, library);
+               member = new JDdsMember(getConnection(), name, this.name, library);
                break;
             case TABLE:
             case VIEW:
-               member = new JSqlMember(null, name, name, library);
+               member = new JSqlMember(getConnection(), name, this.name, library);
                break;
             default:
                member = JNullMember.getInstance();
@@ -148,7 +172,215 @@ public class JSourcePhysicalFile extends JPhysicalFile
    }
 
    /**
-    * Scansiona il file fisico sorgente data una stringa
+    * Downloads the source code of all the members.<br>
+    * Members are listed once, then read in batches of {@link #SEARCH_BATCH_SIZE}, each with a single SQL
+    * statement over temporary aliases, so that no member is opened on its own.
+    *
+    * @param consumer
+    *        Receives the source of each member, in list order
+    *
+    * @return The number of members downloaded. Members which couldn't be read are skipped
+    */
+   public int downloadAll(final Consumer<JMemberSource> consumer) {
+      return download(getMembers(), consumer);
+   }
+
+   /**
+    * Downloads the source code of some members, in batches as {@link #downloadAll(Consumer)} does.
+    *
+    * @param members
+    *        The member names
+    * @param consumer
+    *        Receives the source of each member, in the specified order
+    *
+    * @return The number of members downloaded. Members which couldn't be read are skipped
+    */
+   public int download(final String[] members, final Consumer<JMemberSource> consumer) {
+      int downloaded = 0;
+
+      for (int from = 0; from < members.length; from += SEARCH_BATCH_SIZE) {
+         downloaded += download(getConnection(), members, from, Math.min(members.length, from + SEARCH_BATCH_SIZE), consumer);
+      }
+
+      return downloaded;
+   }
+
+   /**
+    * Downloads the source code of all the members, using every connection of the pool.<br>
+    * Members are listed once, then each worker leases a connection and reads the next
+    * batch of members not yet taken, until none is left.
+    *
+    * @param pool
+    *        The connection pool
+    * @param consumer
+    *        Receives the source of each member. It is called concurrently, in no particular order.
+    *        If it throws, the other workers stop after their current batch and the exception is rethrown
+    *
+    * @return The number of members downloaded. Members which couldn't be read are skipped
+    */
+   public int downloadAll(final JConnectionPool pool, final Consumer<JMemberSource> consumer) {
+      final String[] members = getMembers();
+      final int batches = (members.length + SEARCH_BATCH_SIZE - 1) / SEARCH_BATCH_SIZE;
+      final AtomicInteger next = new AtomicInteger();
+      final AtomicInteger downloaded = new AtomicInteger();
+      final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+      final Thread[] workers = new Thread[Math.min(pool.size(), batches)];
+
+      for (int i = 0; i < workers.length; i++) {
+         workers[i] = new Thread(() -> {
+            try (final JConnectionLease lease = pool.lease()) {
+               for (int b = next.getAndIncrement(); b < batches && failure.get() == null; b = next.getAndIncrement()) {
+                  final int from = b * SEARCH_BATCH_SIZE;
+                  final int to = Math.min(members.length, from + SEARCH_BATCH_SIZE);
+                  downloaded.addAndGet(download(lease.getConnection(), members, from, to, consumer));
+               }
+            } catch (final InterruptedException e) {
+               e.printStackTrace();
+            } catch (final RuntimeException e) {
+               failure.compareAndSet(null, e);
+            }
+         }, "J-download-" + name + "-" + i);
+
+         workers[i].start();
+      }
+
+      try {
+         for (final Thread worker : workers) {
+            worker.join();
+         }
+      } catch (final InterruptedException e) {
+         e.printStackTrace();
+         Thread.currentThread().interrupt();
+      }
+
+      if (failure.get() != null) {
+         throw failure.get();
+      }
+
+      return downloaded.get();
+   }
+
+   /**
+    * Downloads a batch of members with a single SQL statement, ordered by member and record number.<br>
+    * If the statement fails, for example because a member has been removed in the meantime,
+    * the members of the batch are read one at a time.
+    *
+    * @return The number of members downloaded
+    */
+   private int download(
+         final JConnection connection,
+         final String[] members,
+         final int from,
+         final int to,
+         final Consumer<JMemberSource> consumer) {
+      final JMemberSource[] sources = downloadBatch(connection.getConnection(), members, from, to);
+
+      if (sources != null) {
+         for (final JMemberSource source : sources) {
+            consumer.accept(source);
+         }
+
+         return sources.length;
+      }
+
+      int downloaded = 0;
+
+      for (int i = from; i < to; i++) {
+         final JMemberSource source = JSourceReader.read(connection, library, name, members[i]);
+
+         if (source != null) {
+            consumer.accept(source);
+            downloaded++;
+         }
+      }
+
+      return downloaded;
+   }
+
+   private JMemberSource[] downloadBatch(final Connection connection, final String[] members, final int from, final int to) {
+      final String aliasPrefix = String.format("JS%04X", SEARCH_SEQUENCE.getAndIncrement() & 0xFFFF);
+      final StringBuilder builder = new StringBuilder(96 * (to - from));
+      final JMemberLines[] memberLines = new JMemberLines[to - from];
+      int aliases = 0;
+
+      try (final Statement statement = connection.createStatement()) {
+         for (int i = from; i < to; i++) {
+            final String alias = createAlias(statement, aliasPrefix, i - from, members[i].toUpperCase());
+            aliases++;
+
+            builder.append(i == from ? "SELECT " : " UNION ALL SELECT ");
+            builder.append(i - from);
+            builder.append(", RRN(A), SRCSEQ, SRCDAT, SRCDTA FROM ");
+            builder.append(alias);
+            builder.append(" A");
+            memberLines[i - from] = new JMemberLines();
+         }
+
+         builder.append(" ORDER BY 1, 2");
+         statement.setFetchSize(SEARCH_FETCH_SIZE);
+
+         try (final ResultSet resultSet = statement.executeQuery(builder.toString())) {
+            while (resultSet.next()) {
+               memberLines[resultSet.getInt(1)].add(
+                     resultSet.getInt(2),
+                     resultSet.getBigDecimal(3),
+                     resultSet.getBigDecimal(4),
+                     resultSet.getString(5));
+            }
+         }
+      } catch (final SQLException e) {
+         e.printStackTrace();
+         return null;
+      } finally {
+         dropAliases(connection, aliasPrefix, aliases);
+      }
+
+      final JMemberSource[] sources = new JMemberSource[to - from];
+
+      for (int i = 0; i < sources.length; i++) {
+         sources[i] = memberLines[i].toSource(library, name, members[from + i]);
+      }
+
+      return sources;
+   }
+
+   /**
+    * Collects the lines of a member read with SQL.
+    */
+   private static final class JMemberLines
+   {
+      private final List<String> lines = new ArrayList<>(256);
+      private final List<BigDecimal> sequences = new ArrayList<>(256);
+      private final List<BigDecimal> dates = new ArrayList<>(256);
+      private int[] recordNumbers = new int[256];
+
+      void add(final int recordNumber, final BigDecimal sequence, final BigDecimal date, final String line) {
+         if (lines.size() == recordNumbers.length) {
+            recordNumbers = Arrays.copyOf(recordNumbers, recordNumbers.length * 2);
+         }
+
+         recordNumbers[lines.size()] = recordNumber;
+         sequences.add(sequence);
+         dates.add(date);
+         lines.add(line);
+      }
+
+      JMemberSource toSource(final String library, final String file, final String member) {
+         final int size = lines.size();
+         return new JMemberSource(
+               library,
+               file,
+               member,
+               lines,
+               Arrays.copyOf(recordNumbers, size),
+               sequences.toArray(new BigDecimal[size]),
+               dates.toArray(new BigDecimal[size]));
+      }
+   }
+
+   /**
+    * Scansiona il file fisico sorgente data una stringa, ignorando maiuscole e minuscole
+    * come FNDSTRPDM.
     *
     * @param correspondences
     *        Lista da popolare con le corrispondenze
@@ -158,134 +390,174 @@ public class JSourcePhysicalFile extends JPhysicalFile
     *        Eventuale elenco di membri in cui cercare. Se vuoto si
     *        assume {@code *ALL}
     *
-    * @return Lista dei membri con una o piu' corrispondenze
+    * @see #search(String, int, int, boolean, Consumer, String...)
     */
-   public synchronized void scan(
+   public void scan(
          final List<String> correspondences,
          final String searchString,
          final int startColumn,
          final int endColumn,
          final String... members) {
-      final StringBuilder builder = new StringBuilder(67 + searchString.length() + members.length * 11);
-      builder.append("FNDSTRPDM STRING('");
-      builder.append(searchString);
-      builder.append("') FILE(");
-      builder.append(library);
-      builder.append("/");
-      builder.append(name);
-      builder.append(") MBR(");
+      final String[] searchedMembers = members.length > 0 ? members : getMembers();
+      final Set<String> found = new HashSet<>(64);
 
-      if (members.length > 0) {
-         for (final String member : members) {
-            builder.append(member);
-            builder.append(" ");
+      search(searchString, false, startColumn, endColumn, true, hit -> found.add(hit.getMember()), searchedMembers);
+
+      // Le corrispondenze seguono l'ordine dei membri, come nella stampa di FNDSTRPDM
+      for (final String member : searchedMembers) {
+         if (found.contains(member.toUpperCase())) {
+            correspondences.add(member.toUpperCase());
          }
-      } else {
-         builder.append("*ALL");
       }
+   }
 
-      builder.append(") OPTION(*NONE) PRTMBRLIST(*YES)");
-
-      if (startColumn > 1 || endColumn >= 1) {
-         builder.append(" COL(");
-         builder.append(startColumn > 1 ? String.valueOf(startColumn) : "1");
-         builder.append(" ");
-         builder.append(endColumn >= 1 ? String.valueOf(endColumn) : "*RCDLEN");
-         builder.append(")");
-      }
+   /**
+    * Searches the members for the lines which contain a string.<br>
+    * The search runs on the system, with SQL over temporary aliases of the members,
+    * and hits are passed to the consumer as they are fetched.
+    * Concurrent searches are allowed, as every search uses its own aliases.
+    *
+    * @param searchString
+    *        The string to search for
+    * @param startColumn
+    *        The first column to search, or a value lower than 1 to start from the first
+    * @param endColumn
+    *        The last column to search, or a value lower than 1 to end with the record
+    * @param ignoreCase
+    *        True to ignore the difference between lowercase and uppercase
+    * @param consumer
+    *        Receives the hits, on the calling thread
+    * @param members
+    *        The members to search. If none, all the members are searched
+    *
+    * @return False if the search couldn't be completed
+    */
+   public boolean search(
+         final String searchString,
+         final int startColumn,
+         final int endColumn,
+         final boolean ignoreCase,
+         final Consumer<JSourceHit> consumer,
+         final String... members) {
+      return search(searchString, false, startColumn, endColumn, ignoreCase, consumer, members.length > 0 ? members : getMembers());
+   }
 
-      // Salvo la data e l'ora prima di generare lo spool
-      String date = "";
-      String time = "";
+   /**
+    * Searches the members for the lines which match a regular expression, with {@code REGEXP_LIKE}.
+    *
+    * @param pattern
+    *        The regular expression, in the ICU syntax supported by the system
+    *
+    * @see #search(String, int, int, boolean, Consumer, String...)
+    */
+   public boolean searchPattern(
+         final String pattern,
+         final int startColumn,
+         final int endColumn,
+         final boolean ignoreCase,
+         final Consumer<JSourceHit> consumer,
+         final String... members) {
+      return search(pattern, true, startColumn, endColumn, ignoreCase, consumer, members.length > 0 ? members : getMembers());
+   }
 
-      try {
-         // Tento reperendo la data di sistema
-         date = "1" + getConnection().getSystemValue("QDATE").toString().substring(2).replace("-", "");
-         time = getConnection().getSystemValue("QTIME").toString().replace(":", "");
-      } catch (final IndexOutOfBoundsException e) {
-         e.printStackTrace();
+   private boolean search(
+         final String value,
+         final boolean isPattern,
+         final int startColumn,
+         final int endColumn,
+         final boolean ignoreCase,
+         final Consumer<JSourceHit> consumer,
+         final String[] members) {
+      final int start = Math.max(startColumn, 1);
 
-         // Se non riesco, provo con la data del sistema operativo, anche se potrebbe essere sbagliata
-         final String dateTime = "1" + new SimpleDateFormat("yyMMddHHmmss").format(new Date());
-         date = dateTime.substring(0, 7);
-         time = dateTime.substring(7);
+      if (endColumn >= 1 && endColumn < start) {
+         return false;
       }
 
-      // Cancello eventuali spool precedenti per sicurezza
-      getConnection().deleteSpools(getConnection().getAs400().getUserId());
-
-      // Genero lo spool da FNDSTRPDM
-      getConnection().executeCommand(builder.toString());
+      // Le colonne in cui cercare
+      final String data = start == 1 && endColumn < 1
+            ? "SRCDTA"
+            : "SUBSTR(SRCDTA, " + start + (endColumn >= 1 ? ", " + (endColumn - start + 1) : "") + ")";
 
-      // Reperisco lo spool
-      final SpooledFileList spoolList = new SpooledFileList(getConnection().getAs400());
-      SpooledFile spool = null;
-      String spoolName = null;
-      String spoolJobName = null;
+      final String condition;
 
-      try {
-         spoolList.setAttributesToRetrieve(new int[] {
-               PrintObject.ATTR_SPOOLFILE, PrintObject.ATTR_JOBNAME
-         });
-         spoolList.setUserFilter(getConnection().getAs400().getUserId());
-         spoolList.setStartDateFilter(date);
-         spoolList.setEndDateFilter(date);
-         spoolList.setStartTimeFilter(time);
-         spoolList.openSynchronously();
-
-         spool = (SpooledFile) spoolList.getObject(spoolList.size() - 1);
-         spoolName = spool.getName();
-         spoolJobName = spool.getJobName();
-
-         if (!"QPUOPRTF".equals(spoolName) || !"QPRTJOB".equals(spoolJobName)) {
-            return;
-         }
+      if (isPattern) {
+         condition = "REGEXP_LIKE(" + data + ", ?, '" + (ignoreCase ? "i" : "c") + "')";
+      } else {
+         condition = ignoreCase ? "LOCATE(UPPER(?), UPPER(" + data + ")) > 0" : "LOCATE(?, " + data + ") > 0";
+      }
 
-         final PrintParameterList parameters = new PrintParameterList();
-         parameters.setParameter(PrintObject.ATTR_WORKSTATION_CUST_OBJECT, "/QSYS.LIB/QWPDEFAULT.WSCST");
-         parameters.setParameter(PrintObject.ATTR_MFGTYPE, "*WSCST");
+      final Connection connection = getConnection().getConnection();
+      final String aliasPrefix = String.format("JS%04X", SEARCH_SEQUENCE.getAndIncrement() & 0xFFFF);
+
+      for (int from = 0; from < members.length; from += SEARCH_BATCH_SIZE) {
+         final int to = Math.min(members.length, from + SEARCH_BATCH_SIZE);
+         final StringBuilder builder = new StringBuilder(160 * (to - from));
+         int aliases = 0;
+
+         try (final Statement statement = connection.createStatement()) {
+            for (int i = from; i < to; i++) {
+               final String member = members[i].toUpperCase();
+               final String alias = createAlias(statement, aliasPrefix, i - from, member);
+               aliases++;
+
+               builder.append(i == from ? "" : " UNION ALL ");
+               builder.append("SELECT CAST('");
+               builder.append(member);
+               builder.append("' AS VARCHAR(10)), RRN(A), SRCSEQ, SRCDTA FROM ");
+               builder.append(alias);
+               builder.append(" A WHERE ");
+               builder.append(condition);
+            }
 
-         final BufferedReader reader = new BufferedReader(new InputStreamReader(spool.getTransformedInputStream(parameters)));
+            try (final PreparedStatement query = connection.prepareStatement(builder.toString())) {
+               query.setFetchSize(SEARCH_FETCH_SIZE);
 
-         try {
-            for (String line = null; (line = reader.readLine()) != null;) {
-               if (line.length() > 12 && line.charAt(0) == ' ' && line.charAt(1) != ' ' && line.charAt(1) != '-') {
-                  final String member = line.substring(1, 11).trim();
+               for (int i = 1; i <= aliases; i++) {
+                  query.setString(i, value);
+               }
 
-                  if ("Membro".equals(member)) {
-                     continue;
+               try (final ResultSet resultSet = query.executeQuery()) {
+                  while (resultSet.next()) {
+                     consumer.accept(new JSourceHit(
+                           library,
+                           name,
+                           resultSet.getString(1),
+                           resultSet.getInt(2),
+                           resultSet.getBigDecimal(3),
+                           resultSet.getString(4)));
                   }
-
-                  correspondences.add(member);
                }
             }
-         } catch (final IOException e) {
+         } catch (final SQLException e) {
             e.printStackTrace();
+            return false;
          } finally {
-            if (reader != null) {
-               reader.close();
-            }
-         }
-      } catch (final Exception e) {
-         e.printStackTrace();
-      } finally {
-         if (spoolList != null) {
-            spoolList.close();
+            dropAliases(connection, aliasPrefix, aliases);
          }
+      }
+
+      return true;
+   }
+
+   /**
+    * Creates the temporary alias of a member.
+    *
+    * @return The qualified alias name
+    */
+   private String createAlias(final Statement statement, final String aliasPrefix, final int index, final String member) throws SQLException {
+      final String alias = "QTEMP." + aliasPrefix + String.format("%04d", index);
+      statement.execute("CREATE ALIAS " + alias + " FOR " + library + "." + name + " (" + member + ")");
+      return alias;
+   }
 
-         if (spool != null) {
-            builder.delete(0, builder.length());
-            builder.append("DLTSPLF FILE(QPUOPRTF) JOB(");
-            builder.append(spool.getJobNumber());
-            builder.append("/");
-            builder.append(spool.getJobUser());
-            builder.append("/");
-            builder.append(spoolJobName);
-            builder.append(")");
-
-            // Cancello lo spool
-            getConnection().executeCommand(builder.toString());
+   private static void dropAliases(final Connection connection, final String aliasPrefix, final int count) {
+      try (final Statement statement = connection.createStatement()) {
+         for (int i = 0; i < count; i++) {
+            statement.execute("DROP ALIAS QTEMP." + aliasPrefix + String.format("%04d", i));
          }
+      } catch (final SQLException e) {
+         e.printStackTrace();
       }
    }
 
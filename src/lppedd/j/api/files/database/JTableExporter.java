@@ -0,0 +1,719 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files.database;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.ibm.as400.access.QSYSObjectPathName;
+
+import lppedd.j.api.JConnection;
+import lppedd.j.api.JConnectionPool;
+import lppedd.j.api.JConnectionPool.JConnectionLease;
+import lppedd.j.api.files.JField;
+import lppedd.j.api.files.JRecordDecoder;
+import lppedd.j.api.files.JRecordFormat;
+import lppedd.j.api.files.database.JExportOptions.Format;
+
+/**
+ * Exports the members of a physical file to local files, using every connection of a pool.
+ * <p>
+ * Each member is split in partitions of relative record numbers, and each partition is written
+ * to its own file, named {@code FILE.MEMBER.NNNNN.csv} or {@code FILE.MEMBER.NNNNN.jcol}.
+ * Workers take the next partition not yet exported and read it with a record-level cursor
+ * over their own connection, so that they never wait on each other.
+ * <p>
+ * A cursor can't be positioned on a deleted record, so when the first record of a partition
+ * has been deleted the first active one is found with a single SQL query, over a temporary alias of the member.
+ * The blocking factor is kept well below the partition size, as the last block of a partition
+ * is read past its end.
+ * <p>
+ * The memory budget is divided between the workers. Half of each share is used for the records
+ * fetched by the cursor, and the other half for the output buffer and, in the binary format,
+ * for the row group being transposed.
+ * <p>
+ * The binary format is columnar, and keeps the host bytes of each field:
+ *
+ * <pre>
+ * "JCOL" version:int fields:int
+ * { nameLength:short name:ascii type:byte flags:byte length:int digits:int scale:int ccsid:int } * fields
+ * { rows:int recordNumber:int * rows { value:byte[length] * rows } * fields } * groups
+ * 0:int
+ * </pre>
+ *
+ * The only flag is 1, for variable length fields, whose values start with their 2-byte length.
+ *
+ * @author Edoardo Luppi
+ */
+final class JTableExporter
+{
+   private static final byte[] MAGIC = { 'J', 'C', 'O', 'L' };
+   private static final int VERSION = 1;
+   private static final int MIN_BUFFER_SIZE = 64 * 1024;
+   private static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+   private static final int MAX_BLOCKING_FACTOR = 32767;
+
+   /**
+    * Maximum number of attempts to position a cursor on the first active record of a partition,
+    * which could be deleted right after being looked up.
+    */
+   private static final int MAX_POSITION_ATTEMPTS = 4;
+
+   /**
+    * Makes the alias names of concurrent exports unique.
+    */
+   private static final AtomicInteger EXPORT_SEQUENCE = new AtomicInteger();
+   private static final long[] POWERS_OF_TEN = new long[19];
+   private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+   private static final char[] ZEROS = "000000000000000000".toCharArray();
+
+   static {
+      POWERS_OF_TEN[0] = 1;
+
+      for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+         POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+      }
+   }
+
+   private final JPhysicalFile file;
+   private final JConnectionPool pool;
+   private final Path directory;
+   private final JExportOptions options;
+   private final JRecordFormat recordFormat;
+   private final JRecordDecoder decoder;
+   private final List<JPartition> partitions = new ArrayList<>(64);
+   private final AtomicInteger next = new AtomicInteger();
+   private final AtomicInteger completed = new AtomicInteger();
+   private final AtomicLong exported = new AtomicLong();
+   private long expected;
+   private volatile boolean hasFailed;
+
+   JTableExporter(
+         final JPhysicalFile file,
+         final JConnectionPool pool,
+         final Path directory,
+         final JRecordFormat recordFormat,
+         final JRecordDecoder decoder,
+         final JExportOptions options) {
+      this.file = file;
+      this.pool = pool;
+      this.directory = directory;
+      this.recordFormat = recordFormat;
+      this.decoder = decoder;
+      this.options = options;
+   }
+
+   /**
+    * Runs the export.
+    *
+    * @return The number of records exported, or -1 if a partition couldn't be exported
+    */
+   long run() {
+      if (!listPartitions()) {
+         return -1;
+      }
+
+      try {
+         Files.createDirectories(directory);
+      } catch (final IOException e) {
+         e.printStackTrace();
+         return -1;
+      }
+
+      final Thread[] workers = new Thread[Math.min(pool.size(), partitions.size())];
+      final long share = options.getMemoryBudget() / Math.max(workers.length, 1);
+      final int recordLength = Math.max(decoder.getRecordLength(), 1);
+      final int maxBlockingFactor = Math.min(Math.max(options.getPartitionSize() / 8, 1), MAX_BLOCKING_FACTOR);
+      final int blockingFactor = (int) Math.max(1, Math.min(share / 2 / recordLength, maxBlockingFactor));
+      final long outputShare = options.getFormat() == Format.CSV ? share / 2 : share / 4;
+      final int outputSize = (int) Math.max(MIN_BUFFER_SIZE, Math.min(outputShare, MAX_BUFFER_SIZE));
+
+      final String aliasPrefix = String.format("JX%04X", EXPORT_SEQUENCE.getAndIncrement() & 0xFFFF);
+
+      for (int i = 0; i < workers.length; i++) {
+         final String alias = "QTEMP." + aliasPrefix + String.format("%04d", i);
+
+         workers[i] = new Thread(() -> {
+            try (final JConnectionLease lease = pool.lease()) {
+               new JExportWorker(lease.getConnection(), alias, blockingFactor, outputSize).run();
+            } catch (final InterruptedException | RuntimeException e) {
+               // Listener and conversion errors must not pass for a completed export
+               e.printStackTrace();
+               hasFailed = true;
+            }
+         }, "J-export-" + file.getName() + "-" + i);
+
+         workers[i].start();
+      }
+
+      try {
+         for (final Thread worker : workers) {
+            worker.join();
+         }
+      } catch (final InterruptedException e) {
+         e.printStackTrace();
+         Thread.currentThread().interrupt();
+         hasFailed = true;
+      }
+
+      return hasFailed ? -1 : exported.get();
+   }
+
+   /**
+    * Splits the members in partitions, using the number of active and deleted records
+    * of each member, which together give the highest relative record number.
+    *
+    * @return false if the members couldn't be listed, or if a requested member doesn't exist
+    */
+   private boolean listPartitions() {
+      final String sql = "SELECT SYSTEM_TABLE_MEMBER, NUMBER_ROWS, NUMBER_DELETED_ROWS FROM QSYS2.SYSPARTITIONSTAT"
+            + " WHERE SYSTEM_TABLE_SCHEMA = ? AND SYSTEM_TABLE_NAME = ? ORDER BY SYSTEM_TABLE_MEMBER";
+
+      final Set<String> members = new HashSet<>(Arrays.asList(options.getMembers()));
+      final Set<String> missingMembers = new HashSet<>(members);
+      final int partitionSize = options.getPartitionSize();
+
+      try (final PreparedStatement statement = pool.getConnection().getConnection().prepareStatement(sql)) {
+         statement.setString(1, file.getLibrary().toUpperCase());
+         statement.setString(2, file.getName().toUpperCase());
+
+         try (final ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               final String member = resultSet.getString(1).trim();
+
+               if (!members.isEmpty() && !members.contains(member)) {
+                  continue;
+               }
+
+               missingMembers.remove(member);
+               expected += resultSet.getLong(2);
+               final long lastRecord = resultSet.getLong(2) + resultSet.getLong(3);
+               int index = 0;
+
+               // The last partition is open ended, to include records added in the meantime
+               for (long start = 1; start <= lastRecord || index == 0; start += partitionSize) {
+                  final boolean isLast = start + partitionSize > lastRecord;
+                  final int end = isLast ? Integer.MAX_VALUE : (int) (start + partitionSize);
+                  partitions.add(new JPartition(member, index++, (int) start, end));
+               }
+            }
+
+            // A member requested but not found would be silently skipped
+            return missingMembers.isEmpty();
+         }
+      } catch (final SQLException e) {
+         e.printStackTrace();
+      }
+
+      return false;
+   }
+
+   private static void drain(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+      buffer.flip();
+
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+
+      buffer.clear();
+   }
+
+   private static final class JPartition
+   {
+      final String member;
+      final int index;
+      final int start;
+      final int end;
+
+      JPartition(final String member, final int index, final int start, final int end) {
+         this.member = member;
+         this.index = index;
+         this.start = start;
+         this.end = end;
+      }
+   }
+
+   /**
+    * Exports partitions over a single connection, until none is left.
+    */
+   private final class JExportWorker
+   {
+      private final JConnection connection;
+      private final String alias;
+      private final JCursorOptions cursorOptions;
+      private final JPartitionWriter writer;
+
+      private JRecordCursor cursor;
+      private String cursorMember;
+      private boolean isAliasCreated;
+
+      JExportWorker(final JConnection connection, final String alias, final int blockingFactor, final int outputSize) {
+         final ByteBuffer buffer = ByteBuffer.allocateDirect(outputSize);
+         this.connection = connection;
+         this.alias = alias;
+         cursorOptions = new JCursorOptions().setBlockingFactor(blockingFactor);
+         writer = options.getFormat() == Format.CSV ? new JCsvWriter(buffer) : new JColumnarWriter(buffer);
+      }
+
+      void run() {
+         try {
+            for (int p = next.getAndIncrement(); p < partitions.size() && !hasFailed; p = next.getAndIncrement()) {
+               final JPartition partition = partitions.get(p);
+
+               // Consecutive partitions of the same member reuse the open cursor and alias
+               if (!partition.member.equals(cursorMember)) {
+                  close();
+                  final String path = QSYSObjectPathName.toPath(file.getLibrary(), file.getName(), partition.member, "MBR");
+                  cursor = new JRecordCursor(connection, path, recordFormat, cursorOptions);
+                  cursorMember = partition.member;
+               }
+
+               if (!export(partition)) {
+                  hasFailed = true;
+               }
+            }
+         } finally {
+            close();
+         }
+      }
+
+      private boolean export(final JPartition partition) {
+         final Path output = directory.resolve(String.format(
+               "%s.%s.%05d.%s",
+               file.getName(),
+               partition.member,
+               partition.index,
+               options.getFormat() == Format.CSV ? "csv" : "jcol"));
+
+         long records = 0;
+
+         try (final FileChannel channel = FileChannel.open(
+               output,
+               StandardOpenOption.CREATE,
+               StandardOpenOption.TRUNCATE_EXISTING,
+               StandardOpenOption.WRITE)) {
+            writer.begin(channel);
+            final int first = positionToFirstRecord(partition);
+
+            if (first < 0) {
+               return false;
+            }
+
+            if (first > 0) {
+               while (cursor.next()) {
+                  final JRecordView record = cursor.getRecord();
+
+                  if (record.getRecordNumber() >= partition.end) {
+                     break;
+                  }
+
+                  writer.write(record.getRecordNumber(), record.getContents());
+                  records++;
+               }
+            }
+
+            if (cursor.hasFailed()) {
+               return false;
+            }
+
+            writer.finish();
+         } catch (final IOException e) {
+            e.printStackTrace();
+            return false;
+         }
+
+         final Consumer<JExportProgress> listener = options.getProgressListener();
+         final long total = exported.addAndGet(records);
+         final int done = completed.incrementAndGet();
+
+         if (listener != null) {
+            listener.accept(new JExportProgress(partition.member, output, records, done, partitions.size(), total, expected));
+         }
+
+         return true;
+      }
+
+      /**
+       * Positions the cursor on the first active record of the partition.<br>
+       * Usually it's the first one. Otherwise, the first active record is looked up with SQL,
+       * again if it gets deleted before the cursor is positioned on it.
+       *
+       * @return The record number, 0 if the partition has no active records, or -1 if the cursor couldn't be positioned
+       */
+      private int positionToFirstRecord(final JPartition partition) {
+         int start = partition.start;
+
+         for (int attempt = 0; attempt < MAX_POSITION_ATTEMPTS; attempt++) {
+            if (cursor.positionToRecord(start)) {
+               return start;
+            }
+
+            if (cursor.hasFailed()) {
+               return -1;
+            }
+
+            start = findFirstRecord(start, partition.end);
+
+            if (start <= 0) {
+               return start;
+            }
+         }
+
+         return -1;
+      }
+
+      /**
+       * Looks up the first active record in a range with SQL.
+       *
+       * @return The record number, 0 if the range has no active records, or -1 if the query failed
+       */
+      private int findFirstRecord(final int start, final int end) {
+         final String sql = "SELECT MIN(RRN(A)) FROM " + alias + " A WHERE RRN(A) >= ? AND RRN(A) < ?";
+
+         try {
+            if (!isAliasCreated) {
+               try (final Statement statement = connection.getConnection().createStatement()) {
+                  statement.execute("CREATE ALIAS " + alias + " FOR " + file.getLibrary() + "." + file.getName() + " (" + cursorMember + ")");
+                  isAliasCreated = true;
+               }
+            }
+
+            try (final PreparedStatement statement = connection.getConnection().prepareStatement(sql)) {
+               statement.setInt(1, start);
+               statement.setInt(2, end);
+
+               try (final ResultSet resultSet = statement.executeQuery()) {
+                  return resultSet.next() ? resultSet.getInt(1) : 0;
+               }
+            }
+         } catch (final SQLException e) {
+            e.printStackTrace();
+         }
+
+         return -1;
+      }
+
+      private void close() {
+         if (cursor != null) {
+            cursor.close();
+            cursor = null;
+         }
+
+         if (isAliasCreated) {
+            isAliasCreated = false;
+
+            try (final Statement statement = connection.getConnection().createStatement()) {
+               statement.execute("DROP ALIAS " + alias);
+            } catch (final SQLException e) {
+               e.printStackTrace();
+            }
+         }
+
+         cursorMember = null;
+      }
+   }
+
+   /**
+    * Writes the partitions of a worker, one at a time, reusing its buffers.
+    */
+   private interface JPartitionWriter
+   {
+      void begin(FileChannel channel) throws IOException;
+
+      void write(int recordNumber, byte[] record) throws IOException;
+
+      void finish() throws IOException;
+   }
+
+   /**
+    * Writes records as UTF-8 CSV, decoding each field with the record decoder.
+    */
+   private final class JCsvWriter implements JPartitionWriter
+   {
+      private final ByteBuffer buffer;
+      private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+      private final StringBuilder line = new StringBuilder(256);
+      private final char separator = options.getSeparator();
+      private FileChannel channel;
+
+      JCsvWriter(final ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public void begin(final FileChannel channel) throws IOException {
+         this.channel = channel;
+         buffer.clear();
+
+         final List<JField> fields = recordFormat.getFields();
+
+         for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+               line.append(separator);
+            }
+
+            line.append(fields.get(i).getName());
+         }
+
+         writeLine();
+      }
+
+      @Override
+      public void write(final int recordNumber, final byte[] record) throws IOException {
+         final int fieldCount = decoder.getFieldCount();
+
+         for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+               line.append(separator);
+            }
+
+            appendField(record, i);
+         }
+
+         writeLine();
+      }
+
+      @Override
+      public void finish() throws IOException {
+         drain(channel, buffer);
+      }
+
+      private void appendField(final byte[] record, final int field) {
+         switch (decoder.getDataType(field)) {
+            case ALPHANUMERIC:
+            case DATE:
+            case TIME:
+               appendString(decoder.getString(record, field));
+               break;
+            case ZONED:
+            case PACKED:
+            case BINARY:
+               if (decoder.getDataType(field) != JField.DataType.BINARY && decoder.getDigits(field) > 18) {
+                  line.append(decoder.getBigDecimal(record, field).toPlainString());
+               } else {
+                  appendDecimal(decoder.getDecimalUnscaled(record, field), decoder.getScale(field));
+               }
+
+               break;
+            case FLOAT:
+               line.append(decoder.getDouble(record, field));
+               break;
+            default:
+               // Graphic and unknown fields are written as hexadecimal
+               final int offset = decoder.getOffset(field);
+
+               for (int i = offset; i < offset + decoder.getLength(field); i++) {
+                  line.append(HEX[(record[i] >> 4) & 0x0F]).append(HEX[record[i] & 0x0F]);
+               }
+
+               break;
+         }
+      }
+
+      private void appendString(final String value) {
+         int length = value.length();
+
+         while (length > 0 && value.charAt(length - 1) == ' ') {
+            length--;
+         }
+
+         boolean isQuoted = false;
+
+         for (int i = 0; i < length && !isQuoted; i++) {
+            final char c = value.charAt(i);
+            isQuoted = c == separator || c == '"' || c == '\n' || c == '\r';
+         }
+
+         if (!isQuoted) {
+            line.append(value, 0, length);
+            return;
+         }
+
+         line.append('"');
+
+         for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c == '"') {
+               line.append('"');
+            }
+
+            line.append(c);
+         }
+
+         line.append('"');
+      }
+
+      private void appendDecimal(final long unscaled, final int scale) {
+         if (scale == 0 || unscaled == Long.MIN_VALUE) {
+            line.append(scale == 0 ? Long.toString(unscaled) : BigDecimal.valueOf(unscaled, scale).toPlainString());
+            return;
+         }
+
+         if (unscaled < 0) {
+            line.append('-');
+         }
+
+         final long value = Math.abs(unscaled);
+         line.append(value / POWERS_OF_TEN[scale]).append('.');
+
+         final int start = line.length();
+         line.append(value % POWERS_OF_TEN[scale]);
+         line.insert(start, ZEROS, 0, scale - (line.length() - start));
+      }
+
+      private void writeLine() throws IOException {
+         line.append('\n');
+         final CharBuffer chars = CharBuffer.wrap(line);
+
+         while (true) {
+            final CoderResult result = encoder.encode(chars, buffer, true);
+
+            if (result.isOverflow()) {
+               drain(channel, buffer);
+            } else if (result.isUnderflow()) {
+               break;
+            } else {
+               result.throwException();
+            }
+         }
+
+         encoder.reset();
+         line.setLength(0);
+      }
+   }
+
+   /**
+    * Writes records in row groups, one column at a time.
+    */
+   private final class JColumnarWriter implements JPartitionWriter
+   {
+      private final ByteBuffer buffer;
+      private final int recordLength = Math.max(decoder.getRecordLength(), 1);
+      private final byte[] rows;
+      private final int[] recordNumbers;
+      private FileChannel channel;
+      private int rowCount;
+
+      JColumnarWriter(final ByteBuffer buffer) {
+         this.buffer = buffer;
+
+         // Row groups get the same memory as the output buffer
+         final int capacity = Math.max(buffer.capacity() / recordLength, 1);
+         rows = new byte[capacity * recordLength];
+         recordNumbers = new int[capacity];
+      }
+
+      @Override
+      public void begin(final FileChannel channel) throws IOException {
+         this.channel = channel;
+         buffer.clear();
+         rowCount = 0;
+
+         final List<JField> fields = recordFormat.getFields();
+         ensure(12);
+         buffer.put(MAGIC).putInt(VERSION).putInt(fields.size());
+
+         for (final JField field : fields) {
+            final byte[] name = field.getName().getBytes(StandardCharsets.US_ASCII);
+            ensure(name.length + 24);
+            buffer.putShort((short) name.length).put(name);
+            buffer.put((byte) field.getDataType().ordinal());
+            buffer.put((byte) (field.isVariableLength() ? 1 : 0));
+            buffer.putInt(field.getLength()).putInt(field.getDigits()).putInt(field.getDecimalPositions()).putInt(field.getCcsid());
+         }
+      }
+
+      @Override
+      public void write(final int recordNumber, final byte[] record) throws IOException {
+         System.arraycopy(record, 0, rows, rowCount * recordLength, Math.min(record.length, recordLength));
+         recordNumbers[rowCount] = recordNumber;
+
+         if (++rowCount == recordNumbers.length) {
+            writeGroup();
+         }
+      }
+
+      @Override
+      public void finish() throws IOException {
+         writeGroup();
+         ensure(4);
+         buffer.putInt(0);
+         drain(channel, buffer);
+      }
+
+      private void writeGroup() throws IOException {
+         if (rowCount == 0) {
+            return;
+         }
+
+         ensure(4);
+         buffer.putInt(rowCount);
+
+         for (int row = 0; row < rowCount; row++) {
+            ensure(4);
+            buffer.putInt(recordNumbers[row]);
+         }
+
+         for (int field = 0; field < decoder.getFieldCount(); field++) {
+            final int offset = decoder.getOffset(field);
+            final int length = decoder.getLength(field);
+
+            for (int row = 0; row < rowCount; row++) {
+               ensure(length);
+               buffer.put(rows, row * recordLength + offset, length);
+            }
+         }
+
+         rowCount = 0;
+      }
+
+      private void ensure(final int size) throws IOException {
+         if (buffer.remaining() < size) {
+            drain(channel, buffer);
+         }
+      }
+   }
+}
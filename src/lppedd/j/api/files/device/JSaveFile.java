@@ -27,12 +27,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import com.ibm.as400.access.BinaryConverter;
-
 import lppedd.j.api.JConnection;
 import lppedd.j.api.JType;
 import lppedd.j.api.ibm.JApi;
-import lppedd.j.api.ibm.JApiResult;
+import lppedd.j.api.ibm.JApiList;
 import lppedd.j.api.misc.JUtil;
 
 public class JSaveFile extends JAbstractDeviceFile
@@ -88,58 +86,50 @@ public class JSaveFile extends JAbstractDeviceFile
       final JConnection connection = getConnection();
 
       // Recupero gli oggetti.
-      JApiResult output = JApi.QSRLSAVF(connection, "SAVF0200", "*ALL", "*ALL", this);
-      
-      if (output.getMessages().length != 0) {
-         return Collections.emptyList();
-      }
-      
-      final byte[] objectsBytes = output.getValue();
-      int objectsOffset = BinaryConverter.byteArrayToInt(objectsBytes, 124);
-      int objectsCount = BinaryConverter.byteArrayToInt(objectsBytes, 132);
-      final int objectEntrySize = BinaryConverter.byteArrayToInt(objectsBytes, 136);
-      final List<JSavedObject> savedObjects = new ArrayList<>(objectsCount);
-      
-      for (; objectsCount > 0; --objectsCount, objectsOffset += objectEntrySize) {
-         final String savedObjectName = ((String) CHAR10.toObject(objectsBytes, objectsOffset)).trim();
-         final JType savedObjectType = JType.valueOf(((String) CHAR10.toObject(objectsBytes, objectsOffset + 20)).trim().substring(1));
-         
-         // Lista vuota, dato che l'oggetto potrebbe non essere un file, e quindi contenere membri.
-         List<String> savedObjectMembers = Collections.emptyList();
-         
-         // Se l'oggetto e' un file, reperisco i suoi membri.
-         if (JType.FILE == savedObjectType) {
-            output = JApi.QSRLSAVF(connection, "SAVF0300", savedObjectName, "*ALL", this);
-            
-            if (output.getMessages().length != 0) {
-               continue;
-            }
-            
-            final byte[] membersBytes = output.getValue();
-            int membersOffset = BinaryConverter.byteArrayToInt(membersBytes, 124);
-            int membersCount = BinaryConverter.byteArrayToInt(membersBytes, 132);
-            final int memberEntrySize = BinaryConverter.byteArrayToInt(membersBytes, 136);
-            
-            // Riassegno alla lista una nuova lista con dimensione iniziale uguale al numero di membri.
-            savedObjectMembers = new ArrayList<>(membersCount);
-            
-            for (; membersCount > 0; --membersCount, membersOffset += memberEntrySize) {
-               savedObjectMembers.add(((String) CHAR10.toObject(membersBytes, membersOffset + 20)).trim());
+      try (final JApiList objectsList = JApi.QSRLSAVF(connection, "SAVF0200", "*ALL", "*ALL", this)) {
+         if (objectsList.getMessages().length != 0) {
+            return Collections.emptyList();
+         }
+
+         final List<JSavedObject> savedObjects = new ArrayList<>(objectsList.size());
+
+         while (objectsList.hasNext()) {
+            final byte[] objectEntry = objectsList.next();
+            final String savedObjectName = ((String) CHAR10.toObject(objectEntry, 0)).trim();
+            final JType savedObjectType = JType.valueOf(((String) CHAR10.toObject(objectEntry, 20)).trim().substring(1));
+
+            // Lista vuota, dato che l'oggetto potrebbe non essere un file, e quindi contenere membri.
+            List<String> savedObjectMembers = Collections.emptyList();
+
+            // Se l'oggetto e' un file, reperisco i suoi membri.
+            if (JType.FILE == savedObjectType) {
+               try (final JApiList membersList = JApi.QSRLSAVF(connection, "SAVF0300", savedObjectName, "*ALL", this)) {
+                  if (membersList.getMessages().length != 0) {
+                     continue;
+                  }
+
+                  // Riassegno alla lista una nuova lista con dimensione iniziale uguale al numero di membri.
+                  savedObjectMembers = new ArrayList<>(membersList.size());
+
+                  while (membersList.hasNext()) {
+                     savedObjectMembers.add(((String) CHAR10.toObject(membersList.next(), 20)).trim());
+                  }
+               }
             }
+
+            savedObjects.add(new JSavedObject(
+                  savedObjectName,
+                  ((String) CHAR10.toObject(objectEntry, 10)).trim(),
+                  savedObjectType,
+                  ((String) CHAR10.toObject(objectEntry, 30)).trim(),
+                  ((String) CHAR50.toObject(objectEntry, 154)).trim(),
+                  savedObjectMembers));
          }
-         
-         savedObjects.add(new JSavedObject(
-               savedObjectName,
-               ((String) CHAR10.toObject(objectsBytes, objectsOffset + 10)).trim(),
-               savedObjectType,
-               ((String) CHAR10.toObject(objectsBytes, objectsOffset + 30)).trim(),
-               ((String) CHAR50.toObject(objectsBytes, objectsOffset + 154)).trim(),
-               savedObjectMembers));
+
+         return savedObjects;
       }
-      
-      return savedObjects;
    }
-   
+
    @Override
    protected boolean performSetText() {
       final StringBuilder builder = new StringBuilder(144);
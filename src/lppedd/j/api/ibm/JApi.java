@@ -23,12 +23,10 @@
  */
 package lppedd.j.api.ibm;
 
-import java.beans.PropertyVetoException;
 import java.io.IOException;
 
 import com.ibm.as400.access.AS400Message;
 import com.ibm.as400.access.AS400SecurityException;
-import com.ibm.as400.access.BinaryConverter;
 import com.ibm.as400.access.ErrorCodeParameter;
 import com.ibm.as400.access.ErrorCompletingRequestException;
 import com.ibm.as400.access.ObjectDoesNotExistException;
@@ -41,11 +39,10 @@ import lppedd.j.api.files.JAbstractFile;
 import lppedd.j.api.files.JFile;
 import lppedd.j.api.files.device.JSaveFile;
 import lppedd.j.api.members.JMember;
-import lppedd.j.api.misc.EmptyArrays;
 import lppedd.j.api.misc.JUtil;
 import lppedd.j.api.objects.JObject;
 import lppedd.j.api.objects.JUserSpace;
-import lppedd.j.api.objects.JUserSpace.JUserSpaceBuilder;
+import lppedd.j.api.objects.JUserSpacePool.JUserSpaceLease;
 
 /**
  * A collection of IBMi API wrappers.
@@ -83,127 +80,59 @@ public final class JApi implements IBMiDataTypes
       return false;
    }
 
-   public static JApiResult QSRLSAVF(final JConnection connection, final String format, final String objectFilter, final String typeFilter, final JSaveFile object) {
-      final JUserSpace userSpace = new JUserSpaceBuilder(connection, JUtil.getRandomString(10), "QTEMP")
-            .length(80000)
-            .autoExtendible(true)
-            .initialValue((byte) 0x00)
-            .build();
-
-      userSpace.delete();
-
-      if (!userSpace.create()) {
-         return new JApiResult(ERROR_MESSAGE);
-      }
-
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(CHAR20.toBytes(userSpace.getQualifiedPath())),
+   public static JApiList QSRLSAVF(final JConnection connection, final String format, final String objectFilter, final String typeFilter, final JSaveFile object) {
+      return callListApi(connection, "/QSYS.LIB/QSRLSAVF.PGM",
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
             new ProgramParameter(CHAR10.toBytes(objectFilter)),
             new ProgramParameter(CHAR10.toBytes(typeFilter)),
             new ProgramParameter(CHAR36.toBytes("")),
-            new ErrorCodeParameter()
-      };
-
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400(), "/QSYS.LIB/QSRLSAVF.PGM", parameters);
-      byte[] buffer = EmptyArrays.EMPTY_BYTE;
-
-      try {
-         if (pgmCall.run()) {
-            final int userSpaceLength = userSpace.getLength();
-            buffer = new byte[userSpaceLength];
-            userSpace.read(buffer, 0, 0, userSpaceLength);
-         }
-      } catch (final AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException e) {
-         e.printStackTrace();
-      }
-
-      userSpace.delete();
-      return new JApiResult(buffer, pgmCall.getMessageList());
+            new ErrorCodeParameter());
    }
 
-   public static JApiResult QUSLFLD(final JConnection connection, final String format, final String recordFormat, final JFile object) {
-      final JUserSpace userSpace = new JUserSpaceBuilder(connection, JUtil.getRandomString(10), "QTEMP")
-            .length(80000)
-            .autoExtendible(true)
-            .initialValue((byte) 0x00)
-            .build();
-
-      userSpace.delete();
-
-      if (!userSpace.create()) {
-         return new JApiResult(ERROR_MESSAGE);
-      }
-
-      userSpace.setText("QUSLFLD userspace");
-      userSpace.persist();
-
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(CHAR20.toBytes(userSpace.getQualifiedPath())),
+   public static JApiList QUSLFLD(final JConnection connection, final String format, final String recordFormat, final JFile object) {
+      return callListApi(connection, "/QSYS.LIB/QUSLFLD.PGM",
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
             new ProgramParameter(CHAR10.toBytes(recordFormat)),
             new ProgramParameter(CHAR1.toBytes("0")),
-            new ErrorCodeParameter()
-      };
-
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400(), "/QSYS.LIB/QUSLFLD.PGM", parameters);
-      byte[] buffer = EmptyArrays.EMPTY_BYTE;
-
-      try {
-         if (pgmCall.run()) {
-            final int userSpaceLength = userSpace.getLength();
-            buffer = new byte[userSpaceLength];
-            userSpace.read(buffer, 0, 0, userSpaceLength);
-         }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException e) {
-         e.printStackTrace();
-      }
-
-      userSpace.delete();
-      return new JApiResult(buffer, pgmCall.getMessageList());
+            new ErrorCodeParameter());
    }
 
-   public static JApiResult QUSLRCD(final JConnection connection, final String format, final JFile object) {
-      final JUserSpace userSpace = new JUserSpaceBuilder(connection, JUtil.getRandomString(10), "QTEMP")
-            .length(20000)
-            .autoExtendible(true)
-            .initialValue((byte) 0x00)
-            .build();
-
-      userSpace.delete();
-
-      if (!userSpace.create()) {
-         return new JApiResult(ERROR_MESSAGE);
-      }
-
-      userSpace.setText("QUSLRCD userspace");
-      userSpace.persist();
-
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(CHAR20.toBytes(userSpace.getQualifiedPath())),
+   public static JApiList QUSLRCD(final JConnection connection, final String format, final JFile object) {
+      return callListApi(connection, "/QSYS.LIB/QUSLRCD.PGM",
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
             new ProgramParameter(CHAR1.toBytes("0")),
-            new ErrorCodeParameter()
-      };
-
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400(), "/QSYS.LIB/QUSLRCD.PGM", parameters);
-      byte[] buffer = EmptyArrays.EMPTY_BYTE;
+            new ErrorCodeParameter());
+   }
 
-      try {
-         if (pgmCall.run()) {
-            final int userSpaceLength = userSpace.getLength();
-            buffer = new byte[userSpaceLength];
-            userSpace.read(buffer, 0, 0, userSpaceLength);
-         }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
-         e.printStackTrace();
-      }
+   /**
+    * Lists the members of a database file.
+    *
+    * @see <a href="https://www.ibm.com/support/knowledgecenter/en/ssw_ibm_i_72/apis/quslmbr.htm">IBM Knowledge Center</a>
+    */
+   public static JApiList QUSLMBR(final JConnection connection, final String format, final String memberFilter, final JFile object) {
+      return callListApi(connection, "/QSYS.LIB/QUSLMBR.PGM",
+            new ProgramParameter(CHAR8.toBytes(format)),
+            new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
+            new ProgramParameter(CHAR10.toBytes(memberFilter)),
+            new ProgramParameter(CHAR1.toBytes("1")),
+            new ErrorCodeParameter());
+   }
 
-      userSpace.delete();
-      return new JApiResult(buffer, pgmCall.getMessageList());
+   /**
+    * Lists the database files which depend on a file.
+    *
+    * @see <a href="https://www.ibm.com/support/knowledgecenter/en/ssw_ibm_i_72/apis/qdbldbr.htm">IBM Knowledge Center</a>
+    */
+   public static JApiList QDBLDBR(final JConnection connection, final String format, final String member, final JFile object) {
+      return callListApi(connection, "/QSYS.LIB/QDBLDBR.PGM",
+            new ProgramParameter(CHAR8.toBytes(format)),
+            new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
+            new ProgramParameter(CHAR10.toBytes(member)),
+            new ProgramParameter(CHAR10.toBytes("")),
+            new ErrorCodeParameter());
    }
 
    public static JApiResult QCLRPGMI(final JConnection connection, final String format, final JObject object) {
@@ -217,37 +146,10 @@ public final class JApi implements IBMiDataTypes
             break;
       }
 
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(formatLenght),
-            new ProgramParameter(BIN4.toBytes(formatLenght)),
+      return JApiRetriever.retrieve(connection, "/QSYS.LIB/QCLRPGMI.PGM", format, "PGM", formatLenght,
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
-            new ErrorCodeParameter()
-      };
-
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400());
-      byte[] output = new byte[0];
-
-      try {
-         pgmCall.setProgram("/QSYS.LIB/QCLRPGMI.PGM", parameters);
-
-         while (pgmCall.run()) {
-            output = parameters[0].getOutputData();
-            final int returnedBytes = BinaryConverter.byteArrayToInt(output, 0);
-            final int availableBytes = BinaryConverter.byteArrayToInt(output, 4);
-
-            if (availableBytes > returnedBytes) {
-               parameters[0] = new ProgramParameter(availableBytes);
-               parameters[1] = new ProgramParameter(BIN4.toBytes(availableBytes));
-               pgmCall.setParameterList(parameters);
-               continue;
-            }
-         }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException | PropertyVetoException e) {
-         e.printStackTrace();
-      }
-
-      return new JApiResult(output, pgmCall.getMessageList());
+            new ErrorCodeParameter());
    }
 
    public static JApiResult QUSROBJD(final JConnection connection, final String format, final JObject object) {
@@ -270,39 +172,11 @@ public final class JApi implements IBMiDataTypes
             break;
       }
 
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(formatLenght),
-            new ProgramParameter(BIN4.toBytes(formatLenght)),
+      return JApiRetriever.retrieve(connection, "/QSYS.LIB/QUSROBJD.PGM", format, String.valueOf(object.getType()), formatLenght,
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(object.getQualifiedPath())),
             new ProgramParameter(CHAR10.toBytes("*" + object.getType())),
-            new ErrorCodeParameter()
-      };
-
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400());
-      byte[] output = new byte[0];
-
-      try {
-         pgmCall.setProgram("/QSYS.LIB/QUSROBJD.PGM", parameters);
-
-         while (pgmCall.run()) {
-            output = parameters[0].getOutputData();
-            final int returnedBytes = BinaryConverter.byteArrayToInt(output, 0);
-            final int availableBytes = BinaryConverter.byteArrayToInt(output, 4);
-
-            if (availableBytes <= returnedBytes) {
-               break;
-            }
-
-            parameters[0] = new ProgramParameter(availableBytes);
-            parameters[1] = new ProgramParameter(BIN4.toBytes(availableBytes));
-            pgmCall.setParameterList(parameters);
-         }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException | PropertyVetoException e) {
-         e.printStackTrace();
-      }
-
-      return new JApiResult(output, pgmCall.getMessageList());
+            new ErrorCodeParameter());
    }
 
    public static JApiResult QDBRTVFD(final JConnection connection, final String format, final JAbstractFile file) {
@@ -323,9 +197,7 @@ public final class JApi implements IBMiDataTypes
             break;
       }
 
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(formatLength),
-            new ProgramParameter(BIN4.toBytes(formatLength)),
+      return JApiRetriever.retrieve(connection, "/QSYS.LIB/QDBRTVFD.PGM", format, file.getClass().getSimpleName(), formatLength,
             new ProgramParameter(20),
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(file.getQualifiedPath())),
@@ -333,33 +205,7 @@ public final class JApi implements IBMiDataTypes
             new ProgramParameter(CHAR1.toBytes("0")),
             new ProgramParameter(CHAR10.toBytes("*LCL")),
             new ProgramParameter(CHAR10.toBytes("*EXT")),
-            new ErrorCodeParameter()
-      };
-
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400());
-      byte[] output = new byte[0];
-
-      try {
-         pgmCall.setProgram("/QSYS.LIB/QDBRTVFD.PGM", parameters);
-
-         while (pgmCall.run()) {
-            output = parameters[0].getOutputData();
-            final int returnedBytes = BinaryConverter.byteArrayToInt(output, 0);
-            final int availableBytes = BinaryConverter.byteArrayToInt(output, 4);
-
-            if (availableBytes <= returnedBytes) {
-               break;
-            }
-
-            parameters[0] = new ProgramParameter(availableBytes);
-            parameters[1] = new ProgramParameter(BIN4.toBytes(availableBytes));
-            pgmCall.setParameterList(parameters);
-         }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException | PropertyVetoException e) {
-         e.printStackTrace();
-      }
-
-      return new JApiResult(output, pgmCall.getMessageList());
+            new ErrorCodeParameter());
    }
 
    public static JApiResult QUSRMBRD(final JConnection connection, final String format, final JBase base) {
@@ -388,39 +234,44 @@ public final class JApi implements IBMiDataTypes
       final String object = base instanceof JMember ? ((JMember) base).getObject() : base.getName();
       final String member = base instanceof JMember ? base.getName() : "*FIRST";
 
-      final ProgramParameter[] parameters = new ProgramParameter[] {
-            new ProgramParameter(formatLenght),
-            new ProgramParameter(BIN4.toBytes(formatLenght)),
+      return JApiRetriever.retrieve(connection, "/QSYS.LIB/QUSRMBRD.PGM", format, base.getClass().getSimpleName(), formatLenght,
             new ProgramParameter(CHAR8.toBytes(format)),
             new ProgramParameter(CHAR20.toBytes(JUtil.getQualifiedPath(base.getLibrary(), object))),
             new ProgramParameter(CHAR10.toBytes(member)),
             new ProgramParameter(CHAR1.toBytes("1")),
-            new ErrorCodeParameter()
-      };
+            new ErrorCodeParameter());
+   }
 
-      final ProgramCall pgmCall = new ProgramCall(connection.getAs400());
-      byte[] output = new byte[0];
+   /**
+    * Calls a list API on a user space leased from the connection pool.
+    * The returned list holds the user space until it is closed.
+    *
+    * @param parameters
+    *        The API parameters, except the qualified user space name which always comes first
+    */
+   private static JApiList callListApi(final JConnection connection, final String program, final ProgramParameter... parameters) {
+      final JUserSpaceLease lease = connection.getUserSpacePool().lease();
 
-      try {
-         pgmCall.setProgram("/QSYS.LIB/QUSRMBRD.PGM", parameters);
+      if (lease == null) {
+         return new JApiList(ERROR_MESSAGE);
+      }
 
-         while (pgmCall.run()) {
-            output = parameters[0].getOutputData();
-            final int returnedBytes = BinaryConverter.byteArrayToInt(output, 0);
-            final int availableBytes = BinaryConverter.byteArrayToInt(output, 4);
+      final ProgramParameter[] allParameters = new ProgramParameter[parameters.length + 1];
+      allParameters[0] = new ProgramParameter(CHAR20.toBytes(lease.getUserSpace().getQualifiedPath()));
+      System.arraycopy(parameters, 0, allParameters, 1, parameters.length);
 
-            if (availableBytes <= returnedBytes) {
-               break;
-            }
+      final ProgramCall pgmCall = new ProgramCall(connection.getAs400(), program, allParameters);
 
-            parameters[0] = new ProgramParameter(availableBytes);
-            parameters[1] = new ProgramParameter(BIN4.toBytes(availableBytes));
-            pgmCall.setParameterList(parameters);
+      try {
+         if (pgmCall.run()) {
+            return new JApiList(lease, pgmCall.getMessageList());
          }
-      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException | PropertyVetoException e) {
+      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException e) {
          e.printStackTrace();
       }
 
-      return new JApiResult(output, pgmCall.getMessageList());
+      final AS400Message[] messages = pgmCall.getMessageList();
+      lease.close();
+      return messages.length != 0 ? new JApiList(messages) : new JApiList(ERROR_MESSAGE);
    }
 }
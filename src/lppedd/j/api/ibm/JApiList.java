@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.ibm;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.ibm.as400.access.AS400Message;
+import com.ibm.as400.access.BinaryConverter;
+
+import lppedd.j.api.misc.EmptyArrays;
+import lppedd.j.api.objects.JUserSpace;
+import lppedd.j.api.objects.JUserSpacePool.JUserSpaceLease;
+
+/**
+ * Represents the output of an IBMi list API, still held in its user space.<br>
+ * Only the generic header is read at first, the entries are then fetched in chunks while iterating.
+ * Closing the list gives the user space back to the pool.
+ *
+ * @author Edoardo Luppi
+ */
+public class JApiList implements Iterator<byte[]>, AutoCloseable
+{
+   /**
+    * Length of the generic header, up to the size of each list entry.
+    */
+   private static final int HEADER_LENGTH = 140;
+
+   /**
+    * Maximum number of bytes read at a time from the list data section.
+    */
+   private static final int CHUNK_LENGTH = 65536;
+
+   private final JUserSpaceLease lease;
+   private final AS400Message[] messages;
+   private final int entriesOffset;
+   private final int entrySize;
+   private int entriesCount;
+
+   private byte[] chunk = EmptyArrays.EMPTY_BYTE;
+   private int chunkStart;
+   private int chunkCount;
+   private int index;
+
+   JApiList(final JUserSpaceLease lease, final AS400Message[] messages) {
+      this.lease = lease;
+      this.messages = messages;
+
+      final byte[] header = new byte[HEADER_LENGTH];
+
+      if (lease == null || messages.length != 0 || lease.getUserSpace().read(header, 0, 0, HEADER_LENGTH) < HEADER_LENGTH) {
+         entriesOffset = 0;
+         entriesCount = 0;
+         entrySize = 0;
+         return;
+      }
+
+      entriesOffset = BinaryConverter.byteArrayToInt(header, 124);
+      entrySize = BinaryConverter.byteArrayToInt(header, 136);
+      entriesCount = entrySize > 0 ? BinaryConverter.byteArrayToInt(header, 132) : 0;
+   }
+
+   JApiList(final AS400Message[] messages) {
+      this(null, messages);
+   }
+
+   JApiList(final AS400Message message) {
+      this(null, new AS400Message[] {
+            message
+      });
+   }
+
+   /**
+    * Returns the messages sent by the API.
+    */
+   public AS400Message[] getMessages() {
+      return messages;
+   }
+
+   /**
+    * Returns the number of entries in the list.
+    */
+   public int size() {
+      return entriesCount;
+   }
+
+   /**
+    * Returns the size of each entry.
+    */
+   public int getEntrySize() {
+      return entrySize;
+   }
+
+   @Override
+   public boolean hasNext() {
+      if (index >= entriesCount) {
+         return false;
+      }
+
+      if (index >= chunkStart + chunkCount && !readChunk()) {
+         // Stops the iteration, the error has already been reported
+         entriesCount = index;
+         return false;
+      }
+
+      return true;
+   }
+
+   /**
+    * Returns the next entry. Offsets inside the entry are relative to its start.
+    */
+   @Override
+   public byte[] next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+
+      final int from = (index++ - chunkStart) * entrySize;
+      return Arrays.copyOfRange(chunk, from, from + entrySize);
+   }
+
+   @Override
+   public void close() {
+      if (lease != null) {
+         lease.close();
+      }
+   }
+
+   private boolean readChunk() {
+      final JUserSpace userSpace = lease.getUserSpace();
+      final int count = Math.min(entriesCount - index, Math.max(1, CHUNK_LENGTH / entrySize));
+      final int length = count * entrySize;
+
+      if (chunk.length < length) {
+         chunk = new byte[length];
+      }
+
+      if (userSpace.read(chunk, 0, entriesOffset + index * entrySize, length) < length) {
+         return false;
+      }
+
+      chunkStart = index;
+      chunkCount = count;
+      return true;
+   }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.ibm;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.BinaryConverter;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.ProgramCall;
+import com.ibm.as400.access.ProgramParameter;
+
+import lppedd.j.api.JConnection;
+import lppedd.j.api.misc.EmptyArrays;
+
+/**
+ * Calls the retrieve APIs which return data in a receiver variable, followed by its length.<br>
+ * The largest bytes available seen are remembered for each API, format and object kind,
+ * so the next call is sized to get everything in a single round trip.
+ * A small object never shrinks the receiver variable below the default length.
+ *
+ * @author Edoardo Luppi
+ */
+public final class JApiRetriever implements IBMiDataTypes
+{
+   /**
+    * Maximum number of calls for a single retrieve, when the receiver variable is too small.
+    */
+   private static final int MAX_ATTEMPTS = 3;
+
+   private static final Map<String, Integer> RECEIVER_LENGTHS = new ConcurrentHashMap<>(32);
+   private static final AtomicLong HITS = new AtomicLong();
+   private static final AtomicLong MISSES = new AtomicLong();
+
+   private JApiRetriever() {}
+
+   /**
+    * Calls a retrieve API.
+    *
+    * @param program
+    *        The program IFS path
+    * @param format
+    *        The format name
+    * @param kind
+    *        The kind of object described, e.g. the object type.
+    *        Objects of the same kind are expected to return a similar amount of data
+    * @param defaultLength
+    *        The receiver variable length, when nothing is known yet
+    * @param parameters
+    *        The API parameters, except the receiver variable and its length which always come first
+    */
+   public static JApiResult retrieve(
+         final JConnection connection,
+         final String program,
+         final String format,
+         final String kind,
+         final int defaultLength,
+         final ProgramParameter... parameters) {
+      final String key = program + "/" + format + "/" + kind;
+      final Integer knownLength = RECEIVER_LENGTHS.get(key);
+      int length = knownLength != null ? knownLength : defaultLength;
+
+      final ProgramParameter[] allParameters = new ProgramParameter[parameters.length + 2];
+      System.arraycopy(parameters, 0, allParameters, 2, parameters.length);
+
+      final ProgramCall pgmCall = new ProgramCall(connection.getAs400());
+      byte[] output = EmptyArrays.EMPTY_BYTE;
+
+      try {
+         for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            allParameters[0] = new ProgramParameter(length);
+            allParameters[1] = new ProgramParameter(BIN4.toBytes(length));
+            pgmCall.setProgram(program, allParameters);
+
+            if (!pgmCall.run()) {
+               break;
+            }
+
+            output = allParameters[0].getOutputData();
+            final int returnedBytes = BinaryConverter.byteArrayToInt(output, 0);
+            final int availableBytes = BinaryConverter.byteArrayToInt(output, 4);
+
+            if (availableBytes > 0) {
+               RECEIVER_LENGTHS.merge(key, Math.max(availableBytes, defaultLength), Math::max);
+            }
+
+            if (availableBytes <= returnedBytes) {
+               (attempt == 1 ? HITS : MISSES).incrementAndGet();
+               break;
+            }
+
+            if (attempt == MAX_ATTEMPTS) {
+               MISSES.incrementAndGet();
+            }
+
+            length = availableBytes;
+         }
+      } catch (AS400SecurityException | ErrorCompletingRequestException | IOException | InterruptedException | ObjectDoesNotExistException | PropertyVetoException e) {
+         e.printStackTrace();
+      }
+
+      return new JApiResult(output, pgmCall.getMessageList());
+   }
+
+   /**
+    * Returns the number of retrieves completed with a single call.
+    */
+   public static long getHitCount() {
+      return HITS.get();
+   }
+
+   /**
+    * Returns the number of retrieves which needed more than one call.
+    */
+   public static long getMissCount() {
+      return MISSES.get();
+   }
+
+   /**
+    * Forgets the known receiver lengths and resets the counters.
+    */
+   public static void reset() {
+      RECEIVER_LENGTHS.clear();
+      HITS.set(0);
+      MISSES.set(0);
+   }
+}
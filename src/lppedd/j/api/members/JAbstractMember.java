@@ -26,16 +26,20 @@ package lppedd.j.api.members;
 import java.beans.PropertyVetoException;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 
 import com.ibm.as400.access.AS400Exception;
 import com.ibm.as400.access.AS400File;
 import com.ibm.as400.access.AS400SecurityException;
-import com.ibm.as400.access.ErrorCompletingRequestException;
 import com.ibm.as400.access.QSYSObjectPathName;
 import com.ibm.as400.access.Record;
 import com.ibm.as400.access.RecordFormat;
@@ -44,8 +48,6 @@ import com.ibm.as400.access.SequentialFile;
 import lppedd.j.api.JAbstractBase;
 import lppedd.j.api.JConnection;
 import lppedd.j.api.JType;
-import lppedd.j.api.ibm.JApi;
-import lppedd.j.api.ibm.JApiResult;
 import lppedd.j.api.misc.JUtil;
 import smi.workitem.SmiAbstractWorkItem;
 import smi.workitem.SmiPgmWorkItem;
@@ -63,6 +65,28 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
     * Starting modification number for the source member work items.
     */
    protected static final int STARTING_INDEX = 9000;
+
+   /**
+    * Number of records written with a single call when replacing the source code.
+    */
+   protected static final int WRITE_BLOCK_SIZE = 1000;
+
+   /**
+    * Maximum number of single record operations when persisting only the changed lines.
+    * Beyond this the whole source code is replaced, which uses blocked writes.
+    */
+   protected static final int MAX_UPDATE_OPERATIONS = 256;
+
+   /**
+    * Highest sequence number allowed by the SRCSEQ field.
+    */
+   private static final BigDecimal MAX_SEQUENCE = new BigDecimal("9999.99");
+
+   /**
+    * Number of body lines rebuilt by a single task when removing the specifications of a work item.
+    */
+   private static final int SPECS_CHUNK_SIZE = 2048;
+
    protected static final Pattern PATTERN_MOD = Pattern.compile("^((9|--9)[0-9]{3}[ §].*)");
    protected static final Pattern PATTERN_EOC = Pattern.compile("^(?!(^.{5}[*])|(^--.*)|(^$)|(^ +$))|(.*([*=§-]{4,}).*)");
 
@@ -72,7 +96,12 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
    /**
     * The source code of the source member.
     */
-   protected final List<String> source = new ArrayList<>(1024);
+   protected final JSourceBuffer source = new JSourceBuffer(1024);
+
+   /**
+    * Read-only view of the source code, handed out by {@link #getSource()}.
+    */
+   private final List<String> sourceView = Collections.unmodifiableList(source);
 
    /**
     * The work item list of the source member.
@@ -88,13 +117,21 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
     */
    protected int workItemsEnd;
 
+   /**
+    * The source code as last read from, or written to, the system, with the record number,
+    * the sequence number and the date of each line. Used to persist only the changed lines.
+    * Null if unknown.
+    */
+   private String[] baselineLines;
+   private int[] baselineRecordNumbers;
+   private BigDecimal[] baselineSequences;
+   private BigDecimal[] baselineDates;
+
+   private boolean isMemberDescriptionRetrieved;
+
    protected JAbstractMember(final JConnection connection, final String name, final String object, final String library) {
       super(connection, name, library, JType.MBR);
       this.object = object.trim().toUpperCase();
-
-      if (exists()) {
-         retriveMemberDescription();
-      }
    }
 
    /**
@@ -111,36 +148,75 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
          return false;
       }
 
-      final AS400File file = new SequentialFile(getConnection().getAs400(), getIfsPath());
+      final JMemberSource memberSource = readSource();
 
-      try {
-         file.setRecordFormat();
+      if (memberSource == null) {
+         return false;
+      }
 
-         for (final Record record : file.readAll()) {
-            source.add(record.getField(2).toString());
-         }
+      applySource(memberSource);
+      return true;
+   }
 
-         inspectForWorkItems();
-         return true;
-      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | PropertyVetoException e) {
-         e.printStackTrace();
-      } finally {
-         try {
-            if (file != null) {
-               file.close();
-            }
-         } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
-            e.printStackTrace();
+   /**
+    * Carica il codice sorgente del membro, utilizzando la cache locale se la versione del membro
+    * non e' cambiata dall'ultima lettura.
+    *
+    * @param cache La cache dei sorgenti
+    */
+   public boolean loadSource(final JSourceCache cache) {
+      // A missing member has no version, so this replaces the existence check
+      final String version = cache.getVersion(this);
+
+      if (version == null) {
+         return false;
+      }
+
+      JMemberSource memberSource = cache.get(this, version);
+
+      if (memberSource == null) {
+         memberSource = readSource();
+
+         if (memberSource == null) {
+            return false;
          }
+
+         cache.put(memberSource, version);
       }
 
-      return false;
+      applySource(memberSource);
+      return true;
+   }
+
+   /**
+    * Reads the whole source code of the member, with record numbers, sequence numbers and dates.
+    *
+    * @return The source, or null if the member couldn't be read
+    */
+   protected JMemberSource readSource() {
+      return JSourceReader.read(getConnection(), library, object, name);
+   }
+
+   private void applySource(final JMemberSource memberSource) {
+      final int start = source.size();
+      source.addAll(memberSource.getLines());
+
+      // The baseline is meaningful only if the source code comes entirely from the member
+      if (start == 0) {
+         setBaseline(
+               memberSource.getRecordNumbers().clone(),
+               memberSource.getSequences().clone(),
+               memberSource.getDates().clone());
+      }
+
+      inspectForWorkItems();
    }
 
    @Override
    public void dispose() {
       source.clear();
       workItemList.clear();
+      clearBaseline();
    }
 
    @Override
@@ -262,8 +338,8 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
 
    @Override
    public Optional<SmiAbstractWorkItem> getWorkItem(final int number) {
-      // FIXME
-      return Optional.ofNullable(workItemList.getWorkItem(workItemList.contains(number)));
+      final int i = workItemList.contains(number);
+      return i < 0 ? Optional.empty() : Optional.of(workItemList.getWorkItem(i));
    }
 
    @Override
@@ -320,10 +396,12 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
          return null;
       }
 
-      // Remove the work item from the header
-      for (int k = workItemList.getPosition(i), j = k; k < (i == workItemList.size() - 1 ? workItemsEnd : workItemList.getPosition(i + 1)); k++) {
-         source.remove(j);
-      }
+      // Remove the work item from the header, with a single edit
+      final int start = workItemList.getPosition(i);
+      final int end = i == workItemList.size() - 1 ? workItemsEnd : workItemList.getPosition(i + 1);
+      source.subList(start, end).clear();
+      workItemList.shiftPositions(i + 1, start - end);
+      workItemsEnd -= end - start;
 
       if (cleanAll) {
          // TODO Removes lines related to the work item
@@ -358,18 +436,26 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
    }
 
    /**
-    * Returns the source code of the source member.
+    * Returns a read-only view of the source code of the source member.<br>
+    * The view is live: it reflects every later change to the source.
     */
    @Override
    public List<String> getSource() {
-      return new ArrayList<>(source);
+      return sourceView;
+   }
+
+   /**
+    * Returns a read-only view of a line of the source code, without decoding it.
+    */
+   public CharSequence getSourceLine(final int index) {
+      return source.getLine(index);
    }
 
    @Override
    public void setSourceType(String attribute) {
       attribute = attribute.toUpperCase();
 
-      if (!this.attribute.equalsIgnoreCase(attribute)) {
+      if (!getAttribute().equalsIgnoreCase(attribute)) {
          this.attribute = attribute;
          isAttributeChanged = true;
       }
@@ -377,8 +463,10 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
 
    @Override
    public void setSource(final List<String> source) {
+      // The list could be the view of the source itself, or derived from it
+      final List<String> lines = new ArrayList<>(source);
       this.source.clear();
-      this.source.addAll(source);
+      this.source.addAll(lines);
       isSourceChanged = true;
    }
 
@@ -434,33 +522,73 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
 
    /**
     * Perists the changed source code of the source member.
+    * When the loaded source code is known only the changed lines are written.
     */
    protected boolean performSetSource() {
-      final JConnection connection = getConnection();
+      return baselineLines == null ? replaceSource() : updateSource();
+   }
+
+   /**
+    * Replaces the whole content of the source member with the source code.
+    * The member is cleared with a single CLRPFM, then the lines are written in blocks,
+    * reusing the same records.
+    * <p>
+    * Lines are renumbered from 1, with fractional steps when there are more than 9999 lines.
+    * Nothing is written if the lines can't be numbered or don't fit the record.
+    */
+   protected boolean replaceSource() {
+      final BigDecimal date = new BigDecimal(getConnection().getSystemValues().format("yyMMdd"));
+      final BigDecimal[] sequences = renumber(source.size());
+      final BigDecimal[] dates = new BigDecimal[source.size()];
+
+      if (sequences == null) {
+         return false;
+      }
+
+      Arrays.fill(dates, date);
+      return rewriteSource(sequences, dates);
+   }
+
+   /**
+    * Clears the source member and writes all the lines, with the specified sequence numbers and dates.
+    */
+   private boolean rewriteSource(final BigDecimal[] sequences, final BigDecimal[] dates) {
       final AS400File file = new SequentialFile(getConnection().getAs400(), getIfsPath());
-      final String date = connection.getSystemValue("QDATE").toString().substring(2).replace("-", "");
       final int sourceSize = source.size();
 
       try {
          file.setRecordFormat();
-         final RecordFormat recordFormat = file.getRecordFormat();
-         final Record[] records = new Record[sourceSize];
-
-         for (int i = 0; i < sourceSize; i++) {
-            records[i] = new Record(recordFormat);
-            records[i].setRecordNumber(i + 1);
-            records[i].setField("SRCSEQ", new BigDecimal(i + 1));
-            records[i].setField("SRCDAT", new BigDecimal(date));
-            records[i].setField("SRCDTA", source.get(i));
+
+         // Everything which can fail must be checked before the member is cleared
+         if (!fitsRecord(file.getRecordFormat())) {
+            return false;
          }
 
-         file.open(AS400File.READ_WRITE, 400, AS400File.COMMIT_LOCK_LEVEL_NONE);
-         
-         while (file.readNext() != null) {
-            file.deleteCurrentRecord();
+         clearBaseline();
+         final boolean isCleared = clearMember();
+
+         file.open(isCleared ? AS400File.WRITE_ONLY : AS400File.READ_WRITE, WRITE_BLOCK_SIZE, AS400File.COMMIT_LOCK_LEVEL_NONE);
+
+         if (!isCleared) {
+            // Se il membro non puo' essere pulito cancello i record uno alla volta
+            while (file.readNext() != null) {
+               file.deleteCurrentRecord();
+            }
+         }
+
+         writeLines(file, 0, sequences, dates);
+
+         // A cleared member restarts from the first record number
+         if (isCleared) {
+            final int[] recordNumbers = new int[sourceSize];
+
+            for (int i = 0; i < sourceSize; i++) {
+               recordNumbers[i] = i + 1;
+            }
+
+            setBaseline(recordNumbers, sequences, dates);
          }
 
-         file.write(records);
          return true;
       } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException | PropertyVetoException e) {
          e.printStackTrace();
@@ -476,15 +604,312 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
 
       return false;
    }
-   
-   private void retriveMemberDescription() {
-      final JApiResult output = JApi.QUSRMBRD(getConnection(), "MBRD0300", this);
 
-      if (output.getMessages().length != 0) {
+   /**
+    * Writes only the lines changed since the source code has been loaded or persisted,
+    * keeping the sequence number and the date of the untouched lines.
+    * Lines in the same position are updated in place, added lines are appended and removed lines are deleted.
+    * <p>
+    * Lines inserted or removed in the middle shift all the following lines to other records, so each of them
+    * must be updated. When that needs more than {@link #MAX_UPDATE_OPERATIONS} record operations, as for
+    * a header stamped at the top of a member longer than that, the member is cleared and rewritten in blocks,
+    * still keeping the sequence number and the date of the untouched lines.
+    * <p>
+    * Falls back to {@link #replaceSource()}, which renumbers the lines, only when there is no room for new
+    * sequence numbers between the existing ones.
+    */
+   protected boolean updateSource() {
+      final String[] oldLines = baselineLines;
+      final int oldSize = oldLines.length;
+      final int newSize = source.size();
+      final int minSize = Math.min(oldSize, newSize);
+
+      int prefix = 0;
+
+      while (prefix < minSize && source.get(prefix).equals(oldLines[prefix])) {
+         prefix++;
+      }
+
+      if (prefix == newSize && newSize == oldSize) {
+         return true;
+      }
+
+      int suffix = 0;
+
+      while (suffix < minSize - prefix && source.get(newSize - 1 - suffix).equals(oldLines[oldSize - 1 - suffix])) {
+         suffix++;
+      }
+
+      final BigDecimal date = new BigDecimal(getConnection().getSystemValues().format("yyMMdd"));
+      final BigDecimal[] sequences = Arrays.copyOf(baselineSequences, newSize);
+      final BigDecimal[] dates = Arrays.copyOf(baselineDates, newSize);
+
+      if (newSize == oldSize) {
+         // Le righe modificate mantengono il numero di sequenza
+         for (int i = prefix; i < newSize; i++) {
+            if (!source.get(i).equals(oldLines[i])) {
+               dates[i] = date;
+            }
+         }
+      } else {
+         final int middleEnd = newSize - suffix;
+         final BigDecimal previous = prefix > 0 ? baselineSequences[prefix - 1] : BigDecimal.ZERO;
+         BigDecimal step = BigDecimal.ONE;
+
+         if (suffix > 0) {
+            final BigDecimal next = baselineSequences[oldSize - suffix];
+            step = step.min(next.subtract(previous).divide(BigDecimal.valueOf(middleEnd - prefix + 1), 2, RoundingMode.DOWN));
+
+            if (step.signum() <= 0) {
+               return replaceSource();
+            }
+         } else if (previous.add(BigDecimal.valueOf(middleEnd - prefix)).compareTo(MAX_SEQUENCE) > 0) {
+            return replaceSource();
+         }
+
+         // Le righe nuove ricevono numeri di sequenza intermedi, quelle finali si spostano con i propri
+         for (int i = prefix; i < middleEnd; i++) {
+            sequences[i] = previous.add(step.multiply(BigDecimal.valueOf(i - prefix + 1)));
+            dates[i] = date;
+         }
+
+         for (int i = middleEnd; i < newSize; i++) {
+            sequences[i] = baselineSequences[i - newSize + oldSize];
+            dates[i] = baselineDates[i - newSize + oldSize];
+         }
+      }
+
+      final BitSet changedLines = new BitSet(minSize);
+
+      for (int i = prefix; i < minSize; i++) {
+         if (isLineChanged(i, sequences[i], dates[i])) {
+            changedLines.set(i);
+         }
+      }
+
+      final int operations = changedLines.cardinality()
+            + (oldSize > newSize ? oldSize - newSize : (newSize - oldSize + WRITE_BLOCK_SIZE - 1) / WRITE_BLOCK_SIZE);
+
+      if (operations > MAX_UPDATE_OPERATIONS) {
+         return rewriteSource(sequences, dates);
+      }
+
+      final SequentialFile file = new SequentialFile(getConnection().getAs400(), getIfsPath());
+      final int[] recordNumbers = baselineRecordNumbers;
+
+      // If anything goes wrong the member content is uncertain
+      clearBaseline();
+      boolean isWritten = false;
+
+      try {
+         file.setRecordFormat();
+         file.open(AS400File.READ_WRITE, 0, AS400File.COMMIT_LOCK_LEVEL_NONE);
+         final Record record = new Record(file.getRecordFormat());
+
+         for (int i = changedLines.nextSetBit(prefix); i >= 0; i = changedLines.nextSetBit(i + 1)) {
+            record.setField("SRCSEQ", sequences[i]);
+            record.setField("SRCDAT", dates[i]);
+            record.setField("SRCDTA", source.get(i));
+            file.update(recordNumbers[i], record);
+         }
+
+         for (int i = newSize; i < oldSize; i++) {
+            file.deleteRecord(recordNumbers[i]);
+         }
+
+         if (newSize > oldSize) {
+            writeLines(file, oldSize, sequences, dates);
+         }
+
+         isWritten = true;
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException | PropertyVetoException e) {
+         e.printStackTrace();
+      } finally {
+         try {
+            file.close();
+         } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+            e.printStackTrace();
+         }
+      }
+
+      if (!isWritten) {
+         return false;
+      }
+
+      final int[] newRecordNumbers = Arrays.copyOf(recordNumbers, newSize);
+
+      // Appended records get record numbers which can't be known in advance, so they are read back
+      if (newSize <= oldSize || readAppendedRecordNumbers(newRecordNumbers, oldSize)) {
+         setBaseline(newRecordNumbers, sequences, dates);
+      }
+
+      return true;
+   }
+
+   /**
+    * Reads the record numbers of the lines appended after the existing ones, which follow the last
+    * existing record.
+    *
+    * @param recordNumbers
+    *        The record numbers, to be completed from the specified position
+    *
+    * @return False if the appended records couldn't be matched, for example because deleted records have been reused
+    */
+   private boolean readAppendedRecordNumbers(final int[] recordNumbers, final int from) {
+      final SequentialFile file = new SequentialFile(getConnection().getAs400(), getIfsPath());
+      int last = 0;
+
+      for (int i = 0; i < from; i++) {
+         last = Math.max(last, recordNumbers[i]);
+      }
+
+      try {
+         file.setRecordFormat();
+         file.open(AS400File.READ_ONLY, WRITE_BLOCK_SIZE, AS400File.COMMIT_LOCK_LEVEL_NONE);
+
+         if (last > 0) {
+            file.positionCursorAfter(last);
+         }
+
+         int i = from;
+
+         for (Record record = file.readNext(); record != null; record = file.readNext()) {
+            if (i == recordNumbers.length) {
+               return false;
+            }
+
+            recordNumbers[i++] = record.getRecordNumber();
+         }
+
+         return i == recordNumbers.length;
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException | PropertyVetoException e) {
+         e.printStackTrace();
+      } finally {
+         try {
+            file.close();
+         } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+            e.printStackTrace();
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Removes all the records of the source member.
+    */
+   protected boolean clearMember() {
+      final StringBuilder builder = new StringBuilder(52);
+      builder.append("CLRPFM FILE(");
+      builder.append(library);
+      builder.append("/");
+      builder.append(object);
+      builder.append(") MBR(");
+      builder.append(name);
+      builder.append(")");
+
+      return JUtil.checkForMessage("CPC3101", getConnection().executeCommand(builder.toString()));
+   }
+
+   /**
+    * Writes the source lines from the specified position onwards, in blocks, reusing the same records.
+    */
+   private void writeLines(final AS400File file, final int from, final BigDecimal[] sequences, final BigDecimal[] dates) throws AS400Exception, AS400SecurityException, InterruptedException, IOException {
+      final RecordFormat recordFormat = file.getRecordFormat();
+      final int sourceSize = source.size();
+      Record[] records = new Record[Math.min(WRITE_BLOCK_SIZE, sourceSize - from)];
+
+      for (int i = 0; i < records.length; i++) {
+         records[i] = new Record(recordFormat);
+      }
+
+      for (int start = from; start < sourceSize; start += records.length) {
+         final int count = Math.min(records.length, sourceSize - start);
+
+         if (count < records.length) {
+            records = Arrays.copyOf(records, count);
+         }
+
+         for (int i = 0; i < count; i++) {
+            records[i].setField("SRCSEQ", sequences[start + i]);
+            records[i].setField("SRCDAT", dates[start + i]);
+            records[i].setField("SRCDTA", source.get(start + i));
+         }
+
+         file.write(records);
+      }
+   }
+
+   /**
+    * Numbers the lines from 1, with the largest step which keeps the last one within {@link #MAX_SEQUENCE}.
+    *
+    * @return The sequence numbers, or null if there are more lines than SRCSEQ can number
+    */
+   private static BigDecimal[] renumber(final int size) {
+      final BigDecimal step = size <= MAX_SEQUENCE.intValue()
+            ? BigDecimal.ONE
+            : MAX_SEQUENCE.divide(BigDecimal.valueOf(size), 2, RoundingMode.DOWN);
+
+      if (step.signum() == 0) {
+         return null;
+      }
+
+      final BigDecimal[] sequences = new BigDecimal[size];
+
+      for (int i = 0; i < size; i++) {
+         sequences[i] = step.multiply(BigDecimal.valueOf(i + 1));
+      }
+
+      return sequences;
+   }
+
+   /**
+    * Checks that every source line fits the SRCDTA field.
+    */
+   private boolean fitsRecord(final RecordFormat recordFormat) {
+      final int length = recordFormat.getFieldDescription("SRCDTA").getLength();
+
+      for (int i = 0; i < source.size(); i++) {
+         if (source.getLineLength(i) > length) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private boolean isLineChanged(final int index, final BigDecimal sequence, final BigDecimal date) {
+      return !source.get(index).equals(baselineLines[index])
+            || sequence.compareTo(baselineSequences[index]) != 0
+            || date.compareTo(baselineDates[index]) != 0;
+   }
+
+   private void setBaseline(final int[] recordNumbers, final BigDecimal[] sequences, final BigDecimal[] dates) {
+      baselineLines = source.toArray(new String[source.size()]);
+      baselineRecordNumbers = recordNumbers;
+      baselineSequences = sequences;
+      baselineDates = dates;
+   }
+
+   private void clearBaseline() {
+      baselineLines = null;
+      baselineRecordNumbers = null;
+      baselineSequences = null;
+      baselineDates = null;
+   }
+
+   @Override
+   protected void retrieveDescription() {
+      if (isMemberDescriptionRetrieved) {
          return;
       }
 
-      MBRD0300 = output.getValue();
+      isMemberDescriptionRetrieved = true;
+      final byte[] MBRD0300 = getMBRD0300();
+
+      if (MBRD0300 == null) {
+         return;
+      }
 
       attribute = CHAR10.toObject(MBRD0300, 48).toString().trim();
       text = CHAR50.toObject(MBRD0300, 84).toString().trim();
@@ -512,14 +937,109 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
     */
    private void removeWorkItemSpecs(final int modificationNumber) {
       final String stringModificationNumber = String.valueOf(modificationNumber);
+      final int bodySize = source.size() - workItemsEnd;
+
+      // Only the lines with the modification number are decoded, the others are never touched
+      if (bodySize <= SPECS_CHUNK_SIZE) {
+         for (int i = workItemsEnd; i < source.size();) {
+            if (!startsWithModification(source.getLine(i), stringModificationNumber)) {
+               i++;
+               continue;
+            }
 
-      for (final ListIterator<String> iterator = source.listIterator(workItemsEnd); iterator.hasNext();) {
-         final String line = backToThePast(iterator.next().trim(), stringModificationNumber);
+            final String line = backToThePast(source.get(i).trim(), stringModificationNumber);
 
-         if (line != null) {
-            iterator.set(line);
+            if (line != null) {
+               source.set(i++, line);
+            } else {
+               source.remove(i);
+            }
+         }
+
+         return;
+      }
+
+      // Lines are rebuilt in parallel, in chunks, while the source is only read.
+      // Changes are then applied backwards, so that removals don't shift the lines still to change
+      final String[] body = new String[bodySize];
+      final boolean[] isMatching = new boolean[bodySize];
+      ForkJoinPool.commonPool().invoke(new JBackToThePastTask(body, isMatching, 0, bodySize, stringModificationNumber));
+
+      for (int i = bodySize - 1; i >= 0; i--) {
+         if (!isMatching[i]) {
+            continue;
+         }
+
+         if (body[i] != null) {
+            source.set(workItemsEnd + i, body[i]);
          } else {
-            iterator.remove();
+            source.remove(workItemsEnd + i);
+         }
+      }
+   }
+
+   /**
+    * Checks if a line starts with the modification number, ignoring its leading blanks as {@link String#trim()} does.
+    */
+   private static boolean startsWithModification(final CharSequence line, final String modificationNumber) {
+      final int length = line.length();
+      final int numberLength = modificationNumber.length();
+      int start = 0;
+
+      while (start < length && line.charAt(start) <= ' ') {
+         start++;
+      }
+
+      if (length - start < numberLength) {
+         return false;
+      }
+
+      for (int i = 0; i < numberLength; i++) {
+         if (line.charAt(start + i) != modificationNumber.charAt(i)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Rebuilds the lines of a range of the body which start with the modification number,
+    * with {@link JAbstractMember#backToThePast(String, String)}.
+    */
+   private class JBackToThePastTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final String[] body;
+      private final boolean[] isMatching;
+      private final int from;
+      private final int to;
+      private final String modificationNumber;
+
+      JBackToThePastTask(final String[] body, final boolean[] isMatching, final int from, final int to, final String modificationNumber) {
+         this.body = body;
+         this.isMatching = isMatching;
+         this.from = from;
+         this.to = to;
+         this.modificationNumber = modificationNumber;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from > SPECS_CHUNK_SIZE) {
+            final int middle = (from + to) >>> 1;
+            invokeAll(
+                  new JBackToThePastTask(body, isMatching, from, middle, modificationNumber),
+                  new JBackToThePastTask(body, isMatching, middle, to, modificationNumber));
+            return;
+         }
+
+         for (int i = from; i < to; i++) {
+            if (startsWithModification(source.getLine(workItemsEnd + i), modificationNumber)) {
+               isMatching[i] = true;
+               body[i] = backToThePast(source.get(workItemsEnd + i).trim(), modificationNumber);
+            }
          }
       }
    }
@@ -531,7 +1051,9 @@ public abstract class JAbstractMember extends JAbstractBase implements JMember
 
    /**
     * Ricostruisce una linea di codice sorgente eliminando il numero di
-    * modifica passato
+    * modifica passato.<br>
+    * Viene chiamato solo per le linee che, senza spazi iniziali, iniziano con il numero di modifica:
+    * le altre linee restano invariate.
     *
     * @param line
     *        Linea da ricostruire
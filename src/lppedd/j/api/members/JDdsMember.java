@@ -25,12 +25,12 @@ package lppedd.j.api.members;
 
 import lppedd.j.api.JConnection;
 import lppedd.j.api.JType;
-import lppedd.j.api.exceptions.JInvalidWorkItemException;
 import lppedd.j.api.factories.JObjectFactory;
 import lppedd.j.api.misc.JUtil;
 import lppedd.j.api.misc.Util;
 import smi.workitem.SmiAbstractWorkItem;
 import smi.workitem.SmiPgmWorkItem;
+import smi.workitem.SmiWorkItemScanner;
 
 /**
  * @author Edoardo Luppi
@@ -44,7 +44,7 @@ public class JDdsMember extends JAbstractMember
    @Override
    public boolean compile(final String library) {
       final JConnection connection = getConnection();
-      final long time = Long.parseLong(connection.getSystemValue("QDATETIME").toString().substring(0, 14) + "000");
+      final long time = Long.parseLong(connection.getSystemValues().format("yyyyMMddHHmmss") + "000");
       final String name = getName();
       final String attribute = getAttribute();
 
@@ -76,23 +76,21 @@ public class JDdsMember extends JAbstractMember
          workItemList.clear();
       }
 
+      final SmiWorkItemScanner scanner = SmiWorkItemScanner.forProgram();
+
       for (int i = 0; i < source.size(); i++) {
-         final String line = source.get(i);
+         final CharSequence line = source.getLine(i);
 
          // Sono alla fine dei work item in testatina? Se si, salvo la posizione
-         if (!workItemList.isEmpty() && PATTERN_EOC.matcher(line).matches()) {
+         if (!workItemList.isEmpty() && SmiWorkItemScanner.isEndOfHeader(line)) {
             workItemsEnd = i;
             break;
          }
 
          // Se la linea corrisponde ad un un work item, lo aggiungo alla lista
          // e mi salvo la posizioni in modo da poter, successivamente, andare ad inserire il suo testo
-         if (PATTERN_MOD.matcher(line).matches() && lppedd.j.api.misc.Util.isInteger(line.substring(15, 23))) {
-            try {
-               workItemList.add(new SmiPgmWorkItem(this, line), i);
-            } catch (final JInvalidWorkItemException e) {
-               e.printStackTrace();
-            }
+         if (scanner.scan(line)) {
+            workItemList.add(new SmiPgmWorkItem(this, scanner), i);
          }
       }
 
@@ -115,7 +113,7 @@ public class JDdsMember extends JAbstractMember
       }
 
       // Verifico se c'e' una modifica precedente (EX)
-      final int exIndex = line.toUpperCase().indexOf("EX ") + 3;
+      final int exIndex = JUtil.indexOfUpperCase(line, "EX ") + 3;
 
       if (exIndex < 7) {
          // Vado tranquillo e rimuovo la riga
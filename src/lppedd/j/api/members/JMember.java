@@ -41,6 +41,14 @@ public interface JMember extends JBase
     */
    public boolean loadSource();
 
+   /**
+    * Carica il codice sorgente del membro, utilizzando la cache locale se il membro
+    * non e' stato modificato dall'ultima lettura.
+    *
+    * @param cache La cache dei sorgenti
+    */
+   public boolean loadSource(final JSourceCache cache);
+
    /**
     * Rilascia tutta la memoria utilizzata dall'istanza dell'oggetto.
     */
@@ -130,7 +138,8 @@ public interface JMember extends JBase
    public String getObject();
 
    /**
-    * Ritorna il codice sorgente del membro sorgente.
+    * Ritorna il codice sorgente del membro sorgente, come vista di sola lettura.<br>
+    * La vista non e' una copia: riflette ogni modifica successiva del sorgente.
     */
    public List<String> getSource();
 
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The source code of a source member, as read from the system, with the record number,
+ * the sequence number (SRCSEQ) and the date (SRCDAT) of each line.
+ *
+ * @author Edoardo Luppi
+ */
+public class JMemberSource
+{
+   private final String library;
+   private final String file;
+   private final String member;
+   private final List<String> lines;
+   private final int[] recordNumbers;
+   private final BigDecimal[] sequences;
+   private final BigDecimal[] dates;
+
+   public JMemberSource(
+         final String library,
+         final String file,
+         final String member,
+         final List<String> lines,
+         final int[] recordNumbers,
+         final BigDecimal[] sequences,
+         final BigDecimal[] dates) {
+      this.library = library;
+      this.file = file;
+      this.member = member;
+      this.lines = Collections.unmodifiableList(lines);
+      this.recordNumbers = recordNumbers;
+      this.sequences = sequences;
+      this.dates = dates;
+   }
+
+   public String getLibrary() {
+      return library;
+   }
+
+   public String getFile() {
+      return file;
+   }
+
+   public String getMember() {
+      return member;
+   }
+
+   /**
+    * Returns the source lines.
+    */
+   public List<String> getLines() {
+      return lines;
+   }
+
+   /**
+    * Returns the number of lines.
+    */
+   public int size() {
+      return lines.size();
+   }
+
+   /**
+    * Returns the record number of each line.
+    */
+   public int[] getRecordNumbers() {
+      return recordNumbers;
+   }
+
+   /**
+    * Returns the sequence number (SRCSEQ) of each line.
+    */
+   public BigDecimal[] getSequences() {
+      return sequences;
+   }
+
+   /**
+    * Returns the date (SRCDAT) of each line.
+    */
+   public BigDecimal[] getDates() {
+      return dates;
+   }
+}
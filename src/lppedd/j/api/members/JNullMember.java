@@ -63,6 +63,11 @@ public class JNullMember implements JMember
       return false;
    }
    
+   @Override
+   public boolean loadSource(final JSourceCache cache) {
+      return false;
+   }
+   
    @Override
    public void dispose() {
       //
@@ -0,0 +1,423 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A compact, mutable list of source lines.
+ * <p>
+ * All the lines are kept in a single byte buffer, indexed by offset and length.
+ * Lines made only of Latin-1 characters, as source lines usually are, take one byte per character;
+ * other lines are stored as UTF-16, and are marked with a negative length.
+ * Lines are decoded only when requested with {@link #get(int)}, while {@link #getLine(int)}
+ * returns a view without decoding.
+ * <p>
+ * The buffer is append-only: a changed or removed line leaves its bytes behind,
+ * until they are reclaimed by a compaction into a new buffer.
+ * Thus line views are immutable snapshots, and stay valid after any change.
+ * <p>
+ * The line index is a gap buffer: free slots are kept together at the position of the last edit,
+ * so that clustered insertions and removals only move the slots between two edit positions,
+ * instead of every following line.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceBuffer extends AbstractList<String> implements RandomAccess
+{
+   /**
+    * Unused bytes below which the buffer is never compacted.
+    */
+   private static final int MIN_COMPACTION_GARBAGE = 64 * 1024;
+
+   private byte[] data;
+   private int dataLength;
+   private int garbage;
+
+   private int[] offsets;
+   private int[] lengths;
+   private int size;
+
+   // Free slots of the index, from gapStart (inclusive) to gapEnd (exclusive)
+   private int gapStart;
+   private int gapEnd;
+
+   /**
+    * @param capacity
+    *        The initial number of lines
+    */
+   public JSourceBuffer(final int capacity) {
+      data = new byte[Math.max(capacity, 16) * 80];
+      offsets = new int[Math.max(capacity, 16)];
+      lengths = new int[offsets.length];
+      gapEnd = offsets.length;
+   }
+
+   public JSourceBuffer() {
+      this(1024);
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public String get(final int index) {
+      checkIndex(index);
+      final int slot = slot(index);
+      return decode(data, offsets[slot], lengths[slot]);
+   }
+
+   /**
+    * Returns a read-only view of a line, without decoding it.
+    */
+   public CharSequence getLine(final int index) {
+      checkIndex(index);
+      final int slot = slot(index);
+      return new JSourceLine(data, offsets[slot], lengths[slot]);
+   }
+
+   /**
+    * Returns the number of characters of a line, without decoding it.
+    */
+   public int getLineLength(final int index) {
+      checkIndex(index);
+      return Math.abs(lengths[slot(index)]);
+   }
+
+   @Override
+   public String set(final int index, final String line) {
+      checkIndex(index);
+      final String previous = get(index);
+      final int slot = slot(index);
+      garbage += byteLength(lengths[slot]);
+      offsets[slot] = 0;
+      lengths[slot] = 0;
+      store(index, line);
+      compactIfNeeded();
+      return previous;
+   }
+
+   @Override
+   public void add(final int index, final String line) {
+      checkPositionIndex(index);
+      openSlots(index, 1);
+      store(index, line);
+   }
+
+   @Override
+   public boolean addAll(final int index, final Collection<? extends String> lines) {
+      checkPositionIndex(index);
+      final int count = lines.size();
+
+      if (count == 0) {
+         return false;
+      }
+
+      openSlots(index, count);
+      int i = index;
+
+      for (final String line : lines) {
+         store(i++, line);
+      }
+
+      return true;
+   }
+
+   @Override
+   public boolean addAll(final Collection<? extends String> lines) {
+      return addAll(size, lines);
+   }
+
+   @Override
+   public String remove(final int index) {
+      checkIndex(index);
+      final String previous = get(index);
+      removeRange(index, index + 1);
+      return previous;
+   }
+
+   @Override
+   public void clear() {
+      modCount++;
+      size = 0;
+      gapStart = 0;
+      gapEnd = offsets.length;
+      garbage = 0;
+
+      // Line views may still reference the current buffer, which must not be overwritten
+      if (dataLength > 0) {
+         data = new byte[Math.min(data.length, 1024 * 80)];
+         dataLength = 0;
+      }
+   }
+
+   @Override
+   protected void removeRange(final int fromIndex, final int toIndex) {
+      if (fromIndex >= toIndex) {
+         return;
+      }
+
+      modCount++;
+      moveGap(fromIndex);
+
+      // The removed lines are right after the gap, which just absorbs them
+      final int count = toIndex - fromIndex;
+
+      for (int i = gapEnd; i < gapEnd + count; i++) {
+         garbage += byteLength(lengths[i]);
+      }
+
+      gapEnd += count;
+      size -= count;
+      compactIfNeeded();
+   }
+
+   /**
+    * Returns the number of bytes used to store the lines.
+    */
+   public int getByteSize() {
+      return dataLength - garbage;
+   }
+
+   /**
+    * Moves the gap to the specified index, and takes empty slots for new lines from it.
+    */
+   private void openSlots(final int index, final int count) {
+      modCount++;
+
+      if (gapEnd - gapStart < count) {
+         growIndex(size + count);
+      }
+
+      moveGap(index);
+
+      // Slots still to be stored must not point into the buffer, as a compaction may run in the meantime
+      Arrays.fill(offsets, gapStart, gapStart + count, 0);
+      Arrays.fill(lengths, gapStart, gapStart + count, 0);
+      gapStart += count;
+      size += count;
+   }
+
+   /**
+    * Moves the gap so that it starts at the specified index.<br>
+    * Only the slots between the current and the new gap position are moved.
+    */
+   private void moveGap(final int index) {
+      if (index < gapStart) {
+         final int count = gapStart - index;
+         System.arraycopy(offsets, index, offsets, gapEnd - count, count);
+         System.arraycopy(lengths, index, lengths, gapEnd - count, count);
+         gapStart = index;
+         gapEnd -= count;
+      } else if (index > gapStart) {
+         final int count = index - gapStart;
+         System.arraycopy(offsets, gapEnd, offsets, gapStart, count);
+         System.arraycopy(lengths, gapEnd, lengths, gapStart, count);
+         gapStart = index;
+         gapEnd += count;
+      }
+   }
+
+   private void growIndex(final int minCapacity) {
+      final int capacity = Math.max(minCapacity, offsets.length + (offsets.length >> 1));
+      final int tail = offsets.length - gapEnd;
+      final int[] newOffsets = Arrays.copyOf(offsets, capacity);
+      final int[] newLengths = Arrays.copyOf(lengths, capacity);
+      System.arraycopy(offsets, gapEnd, newOffsets, capacity - tail, tail);
+      System.arraycopy(lengths, gapEnd, newLengths, capacity - tail, tail);
+      offsets = newOffsets;
+      lengths = newLengths;
+      gapEnd = capacity - tail;
+   }
+
+   /**
+    * Returns the index slot of a line.
+    */
+   private int slot(final int index) {
+      return index < gapStart ? index : index + gapEnd - gapStart;
+   }
+
+   /**
+    * Appends the line to the buffer and stores its position in the specified slot.
+    */
+   private void store(final int index, final String line) {
+      final int length = line.length();
+      boolean isLatin1 = true;
+
+      for (int i = 0; i < length; i++) {
+         if (line.charAt(i) > 0xFF) {
+            isLatin1 = false;
+            break;
+         }
+      }
+
+      final int byteLength = isLatin1 ? length : length * 2;
+      ensureDataCapacity(byteLength);
+
+      final int slot = slot(index);
+      offsets[slot] = dataLength;
+      lengths[slot] = isLatin1 ? length : -length;
+
+      if (isLatin1) {
+         for (int i = 0; i < length; i++) {
+            data[dataLength++] = (byte) line.charAt(i);
+         }
+      } else {
+         for (int i = 0; i < length; i++) {
+            final char c = line.charAt(i);
+            data[dataLength++] = (byte) (c >> 8);
+            data[dataLength++] = (byte) c;
+         }
+      }
+   }
+
+   private void ensureDataCapacity(final int byteLength) {
+      if (dataLength + byteLength > data.length) {
+         // Unused bytes are dropped while growing anyway
+         if (garbage > 0) {
+            compact(dataLength - garbage + byteLength);
+         } else {
+            data = Arrays.copyOf(data, Math.max(dataLength + byteLength, data.length + (data.length >> 1)));
+         }
+      }
+   }
+
+   private void compactIfNeeded() {
+      if (garbage > MIN_COMPACTION_GARBAGE && garbage > dataLength >> 1) {
+         compact(dataLength - garbage);
+      }
+   }
+
+   /**
+    * Copies the live lines, in order, into a new buffer.<br>
+    * The old buffer is left untouched, as it may still be referenced by line views.
+    */
+   private void compact(final int minCapacity) {
+      final byte[] compacted = new byte[Math.max(minCapacity + (minCapacity >> 1), 1024)];
+      int position = 0;
+
+      for (int i = 0; i < size; i++) {
+         final int slot = slot(i);
+         final int byteLength = byteLength(lengths[slot]);
+
+         if (byteLength > 0) {
+            System.arraycopy(data, offsets[slot], compacted, position, byteLength);
+         }
+
+         offsets[slot] = position;
+         position += byteLength;
+      }
+
+      data = compacted;
+      dataLength = position;
+      garbage = 0;
+   }
+
+   private void checkIndex(final int index) {
+      if (index < 0 || index >= size) {
+         throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+   }
+
+   private void checkPositionIndex(final int index) {
+      if (index < 0 || index > size) {
+         throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+   }
+
+   private static int byteLength(final int length) {
+      return length < 0 ? -length * 2 : length;
+   }
+
+   private static char charAt(final byte[] data, final int offset, final int length, final int index) {
+      if (length < 0) {
+         final int position = offset + index * 2;
+         return (char) ((data[position] & 0xFF) << 8 | data[position + 1] & 0xFF);
+      }
+
+      return (char) (data[offset + index] & 0xFF);
+   }
+
+   private static String decode(final byte[] data, final int offset, final int length) {
+      final int charLength = Math.abs(length);
+      final char[] chars = new char[charLength];
+
+      for (int i = 0; i < charLength; i++) {
+         chars[i] = charAt(data, offset, length, i);
+      }
+
+      return new String(chars);
+   }
+
+   /**
+    * A read-only view of a stored line.
+    */
+   private static final class JSourceLine implements CharSequence
+   {
+      private final byte[] data;
+      private final int offset;
+      private final int length;
+
+      JSourceLine(final byte[] data, final int offset, final int length) {
+         this.data = data;
+         this.offset = offset;
+         this.length = length;
+      }
+
+      @Override
+      public int length() {
+         return Math.abs(length);
+      }
+
+      @Override
+      public char charAt(final int index) {
+         if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length());
+         }
+
+         return JSourceBuffer.charAt(data, offset, length, index);
+      }
+
+      @Override
+      public CharSequence subSequence(final int start, final int end) {
+         if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("Start: " + start + ", End: " + end + ", Length: " + length());
+         }
+
+         final int width = length < 0 ? 2 : 1;
+         final int subLength = end - start;
+         return new JSourceLine(data, offset + start * width, length < 0 ? -subLength : subLength);
+      }
+
+      @Override
+      public String toString() {
+         return decode(data, offset, length);
+      }
+   }
+}
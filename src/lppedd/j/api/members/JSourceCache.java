@@ -0,0 +1,334 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.as400.access.BinaryConverter;
+
+import lppedd.j.api.JConnection;
+import lppedd.j.api.ibm.IBMiDataTypes;
+import lppedd.j.api.ibm.JApi;
+import lppedd.j.api.ibm.JApiResult;
+
+/**
+ * A local, on disk, cache of source members.
+ * <p>
+ * Every member is indexed by library, file and member name, together with its version, which is made of
+ * the change timestamp and the number of records returned by QUSRMBRD (MBRD0200),
+ * or by QSYS2.SYSPARTITIONSTAT for all the members of a file at once.
+ * The source code is stored compressed, and named by its SHA-256 hash, so identical sources
+ * in different libraries or files are stored once.
+ * <p>
+ * Directory layout:
+ * <ul>
+ * <li><code>index/LIBRARY/FILE/MEMBER</code> contains the version and the hash of the source</li>
+ * <li><code>blobs/HASH.gz</code> contains the source</li>
+ * </ul>
+ * Blobs are never deleted, so a hash keeps pointing to the same source even after
+ * the member is stored with a newer version.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceCache implements IBMiDataTypes
+{
+   private static final int BLOB_VERSION = 1;
+   private static final DateTimeFormatter CHANGE_DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyMMddHHmmss");
+
+   private final Path indexDirectory;
+   private final Path blobsDirectory;
+
+   /**
+    * @param directory
+    *        The cache root directory. It is created when needed
+    */
+   public JSourceCache(final Path directory) {
+      indexDirectory = directory.resolve("index");
+      blobsDirectory = directory.resolve("blobs");
+   }
+
+   /**
+    * Retrieves the current version of a member with a single QUSRMBRD call.
+    *
+    * @return The version, or null if the member couldn't be described
+    */
+   public String getVersion(final JMember member) {
+      final JApiResult output = JApi.QUSRMBRD(member.getConnection(), "MBRD0200", member);
+      final byte[] MBRD0200 = output.getValue();
+
+      if (output.getMessages().length != 0 || MBRD0200.length < 173) {
+         return null;
+      }
+
+      // Change date and time, and current number of records
+      return toVersion((String) CHAR13.toObject(MBRD0200, 160), BinaryConverter.byteArrayToInt(MBRD0200, 140));
+   }
+
+   /**
+    * Retrieves the current version of all the members of a source physical file with a single SQL query.
+    *
+    * @return The versions by member name, or null if they couldn't be retrieved
+    */
+   public Map<String, String> getVersions(final JConnection connection, final String library, final String file) {
+      final String sql = "SELECT SYSTEM_TABLE_MEMBER, LAST_CHANGE_TIMESTAMP, NUMBER_ROWS FROM QSYS2.SYSPARTITIONSTAT"
+            + " WHERE SYSTEM_TABLE_SCHEMA = ? AND SYSTEM_TABLE_NAME = ?";
+
+      try (final PreparedStatement statement = connection.getConnection().prepareStatement(sql)) {
+         statement.setString(1, library.toUpperCase());
+         statement.setString(2, file.toUpperCase());
+
+         try (final ResultSet resultSet = statement.executeQuery()) {
+            final Map<String, String> versions = new HashMap<>(256);
+
+            while (resultSet.next()) {
+               final Timestamp timestamp = resultSet.getTimestamp(2);
+
+               if (timestamp != null) {
+                  final LocalDateTime dateTime = timestamp.toLocalDateTime();
+                  final String changeDateTime = (dateTime.getYear() - 1900) / 100 + dateTime.format(CHANGE_DATE_TIME_FORMAT);
+                  versions.put(resultSet.getString(1).trim(), toVersion(changeDateTime, resultSet.getLong(3)));
+               }
+            }
+
+            return versions;
+         }
+      } catch (final SQLException e) {
+         e.printStackTrace();
+      }
+
+      return null;
+   }
+
+   /**
+    * Returns the cached source of a member.
+    *
+    * @param version
+    *        The current version of the member, see {@link #getVersion(JMember)}
+    *
+    * @return The source, or null if not cached or cached with another version
+    */
+   public JMemberSource get(final JMember member, final String version) {
+      return get(member.getLibrary(), member.getObject(), member.getName(), version);
+   }
+
+   /**
+    * Returns the cached source of a member.
+    *
+    * @param version
+    *        The current version of the member
+    *
+    * @return The source, or null if not cached or cached with another version
+    */
+   public JMemberSource get(final String library, final String file, final String member, final String version) {
+      final String hash = getHash(library, file, member, version);
+      return hash != null ? getBlob(hash, library, file, member) : null;
+   }
+
+   /**
+    * Returns the hash of the cached source of a member.
+    *
+    * @param version
+    *        The current version of the member
+    *
+    * @return The hash, or null if not cached or cached with another version
+    */
+   public String getHash(final String library, final String file, final String member, final String version) {
+      final Path indexFile = getIndexFile(library, file, member);
+
+      if (!Files.isRegularFile(indexFile)) {
+         return null;
+      }
+
+      try {
+         final String[] entry = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8).split(" ");
+         return entry.length == 2 && entry[0].equals(version) ? entry[1] : null;
+      } catch (final IOException e) {
+         e.printStackTrace();
+      }
+
+      return null;
+   }
+
+   /**
+    * Returns a source by its hash, whatever the version of the member currently cached.
+    *
+    * @return The source, or null if there is no source with that hash
+    */
+   public JMemberSource getBlob(final String hash, final String library, final String file, final String member) {
+      final Path blobFile = blobsDirectory.resolve(hash + ".gz");
+
+      if (!Files.isRegularFile(blobFile)) {
+         return null;
+      }
+
+      try (final InputStream stream = Files.newInputStream(blobFile)) {
+         return readBlob(new DataInputStream(new GZIPInputStream(stream)), library, file, member);
+      } catch (final IOException e) {
+         e.printStackTrace();
+      }
+
+      return null;
+   }
+
+   /**
+    * Stores the source of a member.
+    *
+    * @param version
+    *        The version of the member when the source has been read, see {@link #getVersion(JMember)}
+    *
+    * @return The hash of the source, or null if it couldn't be stored
+    */
+   public String put(final JMemberSource source, final String version) {
+      try {
+         final ByteArrayOutputStream bytes = new ByteArrayOutputStream(source.size() * 100 + 16);
+         writeBlob(new DataOutputStream(bytes), source);
+
+         final byte[] blob = bytes.toByteArray();
+         final String hash = toHex(MessageDigest.getInstance("SHA-256").digest(blob));
+         final Path blobFile = blobsDirectory.resolve(hash + ".gz");
+
+         if (!Files.isRegularFile(blobFile)) {
+            Files.createDirectories(blobsDirectory);
+            final Path temporaryFile = Files.createTempFile(blobsDirectory, hash, ".tmp");
+
+            try (final OutputStream stream = new GZIPOutputStream(Files.newOutputStream(temporaryFile))) {
+               stream.write(blob);
+            }
+
+            move(temporaryFile, blobFile);
+         }
+
+         final Path indexFile = getIndexFile(source.getLibrary(), source.getFile(), source.getMember());
+         Files.createDirectories(indexFile.getParent());
+
+         final Path temporaryFile = Files.createTempFile(indexFile.getParent(), source.getMember(), ".tmp");
+         Files.write(temporaryFile, (version + " " + hash).getBytes(StandardCharsets.UTF_8));
+         move(temporaryFile, indexFile);
+         return hash;
+      } catch (IOException | NoSuchAlgorithmException e) {
+         e.printStackTrace();
+      }
+
+      return null;
+   }
+
+   /**
+    * Builds a version from the change date and time, in the CYYMMDDHHMMSS format, and the number of records.
+    */
+   private static String toVersion(final String changeDateTime, final long records) {
+      return changeDateTime + "-" + records;
+   }
+
+   private Path getIndexFile(final String library, final String file, final String member) {
+      return indexDirectory.resolve(library).resolve(file).resolve(member);
+   }
+
+   private static void move(final Path source, final Path target) throws IOException {
+      try {
+         Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final IOException e) {
+         Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+   }
+
+   private static void writeBlob(final DataOutputStream output, final JMemberSource source) throws IOException {
+      final List<String> lines = source.getLines();
+      final int size = lines.size();
+      final int[] recordNumbers = source.getRecordNumbers();
+      final BigDecimal[] sequences = source.getSequences();
+      final BigDecimal[] dates = source.getDates();
+
+      output.writeInt(BLOB_VERSION);
+      output.writeInt(size);
+
+      for (int i = 0; i < size; i++) {
+         output.writeInt(recordNumbers[i]);
+         output.writeInt(sequences[i].movePointRight(2).intValue());
+         output.writeInt(dates[i].intValue());
+         output.writeUTF(lines.get(i));
+      }
+
+      output.flush();
+   }
+
+   private static JMemberSource readBlob(
+         final DataInputStream input,
+         final String library,
+         final String file,
+         final String member) throws IOException {
+      if (input.readInt() != BLOB_VERSION) {
+         return null;
+      }
+
+      final int size = input.readInt();
+      final List<String> lines = new ArrayList<>(size);
+      final int[] recordNumbers = new int[size];
+      final BigDecimal[] sequences = new BigDecimal[size];
+      final BigDecimal[] dates = new BigDecimal[size];
+
+      for (int i = 0; i < size; i++) {
+         recordNumbers[i] = input.readInt();
+         sequences[i] = BigDecimal.valueOf(input.readInt(), 2);
+         dates[i] = BigDecimal.valueOf(input.readInt());
+         lines.add(input.readUTF());
+      }
+
+      return new JMemberSource(library, file, member, lines, recordNumbers, sequences, dates);
+   }
+
+   private static String toHex(final byte[] bytes) {
+      final StringBuilder builder = new StringBuilder(bytes.length * 2);
+
+      for (final byte b : bytes) {
+         builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+         builder.append(Character.forDigit(b & 0xF, 16));
+      }
+
+      return builder.toString();
+   }
+}
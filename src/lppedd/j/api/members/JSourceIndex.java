@@ -0,0 +1,783 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import lppedd.j.api.files.database.JSourceHit;
+import lppedd.j.api.files.database.JSourcePhysicalFile;
+
+/**
+ * A local trigram index over the members of one or more source physical files, for fast code search.
+ * <p>
+ * Every indexed member is a document. For each trigram (three consecutive characters, ignoring case)
+ * the index keeps the sorted list of the documents which contain it, in a memory-mapped file.
+ * A search intersects the lists of the trigrams of the searched string, and then confirms the candidates
+ * against the member sources kept by the {@link JSourceCache}.
+ * Every member remembers the hash of the source it was indexed from, so that searches read exactly
+ * that source, even after the cache has been updated with a newer version of the member.
+ * <p>
+ * {@link #refresh(JSourcePhysicalFile...)} reindexes only the members whose version changed.
+ * Members not in the cache are downloaded in batches, with {@link JSourcePhysicalFile#download(String[], Consumer)}.
+ * Each refresh writes a new generation of the index file, so that searches running in the meantime
+ * keep using the previous one.
+ * <p>
+ * Directory layout:
+ * <ul>
+ * <li><code>members.idx</code> contains the generation and the indexed members, one per line</li>
+ * <li><code>trigrams.N.idx</code> contains the posting lists of generation N</li>
+ * </ul>
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceIndex
+{
+   private static final int MAGIC = 0x4A545249;
+   private static final String MEMBERS_FILE = "members.idx";
+   private static final String MEMBERS_HEADER = "JSI2";
+
+   /**
+    * Number of members indexed with a single pass over the index file. Bounds the memory used while building.
+    */
+   private static final int BUILD_BATCH_SIZE = 4096;
+
+   /**
+    * The trigram made of blanks, which is in every member and thus is never indexed.
+    */
+   private static final int BLANK_TRIGRAM = 0x202020;
+
+   private static final int HEADER_SIZE = 12;
+   private static final int TABLE_ENTRY_SIZE = 12;
+
+   /**
+    * Downloads the sources of some members of a source physical file.
+    */
+   interface JSourceDownloader
+   {
+      /**
+       * @param consumer
+       *        Receives the source of each member downloaded
+       */
+      void download(String library, String file, String[] members, Consumer<JMemberSource> consumer);
+   }
+
+   private final Path directory;
+   private final JSourceCache cache;
+   private volatile JIndexSnapshot snapshot;
+
+   /**
+    * @param directory
+    *        The index directory. It is created when needed
+    * @param cache
+    *        The cache which keeps the sources of the indexed members
+    */
+   public JSourceIndex(final Path directory, final JSourceCache cache) {
+      this.directory = directory;
+      this.cache = cache;
+      snapshot = load();
+   }
+
+   /**
+    * Updates the index with the current members of the specified files.<br>
+    * New and changed members are read from the cache, or from the system if not cached;
+    * members no longer existing are removed. Members of other files are left untouched.
+    *
+    * @return The number of members (re)indexed, or -1 if the index couldn't be written
+    */
+   public synchronized int refresh(final JSourcePhysicalFile... files) {
+      final Map<String, Map<String, String>> versions = new HashMap<>(files.length * 2);
+      final Map<String, JSourcePhysicalFile> refreshedFiles = new HashMap<>(files.length * 2);
+
+      for (final JSourcePhysicalFile file : files) {
+         final Map<String, String> fileVersions = cache.getVersions(file.getConnection(), file.getLibrary(), file.getName());
+
+         // If the versions aren't available the indexed members are kept as they are
+         if (fileVersions != null) {
+            final String key = getKey(file.getLibrary(), file.getName());
+            versions.put(key, new HashMap<>(fileVersions));
+            refreshedFiles.put(key, file);
+         }
+      }
+
+      return refresh(versions, (library, file, members, consumer) -> refreshedFiles.get(getKey(library, file)).download(members, consumer));
+   }
+
+   /**
+    * Updates the index with the current members of some files.
+    *
+    * @param versions
+    *        The current version of each member, by member name, for each refreshed file, by {@link #getKey(String, String)}.
+    *        The maps are emptied
+    * @param downloader
+    *        Downloads the members not in the cache
+    *
+    * @return The number of members (re)indexed, or -1 if the index couldn't be written
+    */
+   synchronized int refresh(final Map<String, Map<String, String>> versions, final JSourceDownloader downloader) {
+      final JIndexSnapshot current = snapshot;
+
+      final List<JIndexedMember> members = new ArrayList<>(current.members.size() + 64);
+      final int[] remap = new int[current.members.size()];
+      final BitSet dirty = new BitSet();
+      final List<Integer> pending = new ArrayList<>(64);
+      boolean isRemoved = false;
+
+      for (int i = 0; i < remap.length; i++) {
+         final JIndexedMember member = current.members.get(i);
+         final Map<String, String> fileVersions = versions.get(getKey(member.library, member.file));
+
+         if (fileVersions == null) {
+            remap[i] = members.size();
+            members.add(member);
+            continue;
+         }
+
+         final String version = fileVersions.remove(member.member);
+
+         if (version == null) {
+            remap[i] = -1;
+            isRemoved = true;
+            continue;
+         }
+
+         remap[i] = members.size();
+
+         if (!version.equals(member.version)) {
+            dirty.set(members.size());
+            pending.add(members.size());
+            members.add(new JIndexedMember(member.library, member.file, member.member, version, ""));
+         } else {
+            members.add(member);
+         }
+      }
+
+      // What is left are the new members
+      for (final Map.Entry<String, Map<String, String>> entry : versions.entrySet()) {
+         final String[] key = entry.getKey().split("/", 2);
+         final List<String> names = new ArrayList<>(entry.getValue().keySet());
+         Collections.sort(names);
+
+         for (final String name : names) {
+            pending.add(members.size());
+            members.add(new JIndexedMember(key[0], key[1], name, entry.getValue().get(name), ""));
+         }
+      }
+
+      if (pending.isEmpty() && !isRemoved) {
+         return 0;
+      }
+
+      try {
+         Files.createDirectories(directory);
+         long generation = current.generation;
+         MappedByteBuffer buffer = current.buffer;
+         int from = 0;
+
+         do {
+            final int to = Math.min(pending.size(), from + BUILD_BATCH_SIZE);
+            final TreeMap<Integer, JIntList> additions = new TreeMap<>();
+            final BitSet trigrams = new BitSet(1 << 24);
+
+            final List<Integer> batch = pending.subList(from, to);
+            fillHashes(members, batch, downloader);
+
+            for (final int id : batch) {
+               final JIndexedMember member = members.get(id);
+               final JMemberSource source = member.hash.isEmpty() ? null : cache.getBlob(member.hash, member.library, member.file, member.member);
+
+               if (source == null) {
+                  // Retried with the next refresh
+                  members.set(id, new JIndexedMember(member.library, member.file, member.member, "", ""));
+                  continue;
+               }
+
+               for (final String line : source.getLines()) {
+                  addTrigrams(line, trigrams);
+               }
+
+               for (int trigram = trigrams.nextSetBit(0); trigram >= 0; trigram = trigrams.nextSetBit(trigram + 1)) {
+                  additions.computeIfAbsent(trigram, k -> new JIntList()).add(id);
+               }
+
+               trigrams.clear();
+            }
+
+            // Only the first pass works on the previous generation, and has to remap and drop documents
+            final Path path = getTrigramsFile(++generation);
+            writeTrigrams(path, buffer, from == 0 ? remap : null, from == 0 ? dirty : null, additions);
+            buffer = map(path);
+            from = to;
+         } while (from < pending.size());
+
+         writeMembers(generation, members);
+         snapshot = new JIndexSnapshot(generation, members, buffer);
+         deleteStaleGenerations(generation);
+      } catch (final IOException e) {
+         e.printStackTrace();
+         return -1;
+      }
+
+      return pending.size();
+   }
+
+   /**
+    * Searches the indexed members for the lines which contain a string, ignoring case.
+    *
+    * @param consumer
+    *        Receives the hits, member by member
+    */
+   public void search(final String searchString, final Consumer<JSourceHit> consumer) {
+      if (searchString.isEmpty()) {
+         return;
+      }
+
+      final JIndexSnapshot current = snapshot;
+      final String folded = fold(searchString);
+
+      for (final int id : getCandidates(current, folded)) {
+         final JIndexedMember member = current.members.get(id);
+
+         if (member.hash.isEmpty()) {
+            continue;
+         }
+
+         final JMemberSource source = cache.getBlob(member.hash, member.library, member.file, member.member);
+
+         if (source == null) {
+            continue;
+         }
+
+         final List<String> lines = source.getLines();
+
+         for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i);
+
+            if (containsFolded(line, folded)) {
+               consumer.accept(new JSourceHit(
+                     member.library,
+                     member.file,
+                     member.member,
+                     source.getRecordNumbers()[i],
+                     source.getSequences()[i],
+                     line));
+            }
+         }
+      }
+   }
+
+   /**
+    * Returns the number of indexed members.
+    */
+   public int size() {
+      return snapshot.members.size();
+   }
+
+   /**
+    * Returns the documents which contain all the trigrams of the searched string.
+    */
+   private static int[] getCandidates(final JIndexSnapshot current, final String folded) {
+      final Set<Integer> keys = new HashSet<>(folded.length() * 2);
+
+      for (int i = 0; i + 3 <= folded.length(); i++) {
+         final int trigram = getTrigram(folded.charAt(i), folded.charAt(i + 1), folded.charAt(i + 2));
+
+         if (trigram != BLANK_TRIGRAM) {
+            keys.add(trigram);
+         }
+      }
+
+      // Too short to be filtered, every member has to be checked
+      if (keys.isEmpty()) {
+         final int[] all = new int[current.members.size()];
+
+         for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+         }
+
+         return all;
+      }
+
+      final List<int[]> postings = new ArrayList<>(keys.size());
+
+      for (final int key : keys) {
+         final int[] posting = current.getPosting(key);
+
+         if (posting.length == 0) {
+            return posting;
+         }
+
+         postings.add(posting);
+      }
+
+      // Starting from the shortest list keeps the intersections small
+      postings.sort((a, b) -> Integer.compare(a.length, b.length));
+      int[] candidates = postings.get(0);
+
+      for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+         candidates = intersect(candidates, postings.get(i));
+      }
+
+      return candidates;
+   }
+
+   /**
+    * Sets the hash of the cached source of each member of a batch.<br>
+    * Members not in the cache are downloaded file by file, and stored in the cache.
+    * Members which couldn't be downloaded are left without a hash.
+    */
+   private void fillHashes(final List<JIndexedMember> members, final List<Integer> batch, final JSourceDownloader downloader) {
+      final Map<String, Map<String, Integer>> missing = new TreeMap<>();
+
+      for (final int id : batch) {
+         final JIndexedMember member = members.get(id);
+         final String hash = cache.getHash(member.library, member.file, member.member, member.version);
+
+         if (hash != null) {
+            members.set(id, member.withHash(hash));
+         } else {
+            missing.computeIfAbsent(getKey(member.library, member.file), k -> new HashMap<>(64)).put(member.member, id);
+         }
+      }
+
+      for (final Map.Entry<String, Map<String, Integer>> entry : missing.entrySet()) {
+         final String[] key = entry.getKey().split("/", 2);
+         final Map<String, Integer> ids = entry.getValue();
+         final String[] names = ids.keySet().toArray(new String[ids.size()]);
+         Arrays.sort(names);
+
+         downloader.download(key[0], key[1], names, source -> {
+            final Integer id = ids.get(source.getMember());
+
+            if (id != null) {
+               final JIndexedMember member = members.get(id);
+               final String hash = cache.put(source, member.version);
+
+               if (hash != null) {
+                  members.set(id, member.withHash(hash));
+               }
+            }
+         });
+      }
+   }
+
+   /**
+    * Writes a new generation of the posting lists, merging the previous one with the additions.
+    *
+    * @param previous
+    *        The previous generation, or null if none
+    * @param remap
+    *        The new document id of each previous document, -1 if removed, or null to keep the ids
+    * @param dirty
+    *        The documents, by new id, whose previous postings have to be dropped, or null if none
+    */
+   private static void writeTrigrams(
+         final Path path,
+         final ByteBuffer previous,
+         final int[] remap,
+         final BitSet dirty,
+         final TreeMap<Integer, JIntList> additions) throws IOException {
+      final int previousCount = previous != null ? previous.getInt(4) : 0;
+      final int previousTable = previous != null ? previous.getInt(8) : 0;
+      final JIntList table = new JIntList();
+      final Path temporaryFile = Files.createTempFile(directoryOf(path), "trigrams", ".tmp");
+      int position = HEADER_SIZE;
+
+      try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16))) {
+         output.writeInt(MAGIC);
+         output.writeInt(0);
+         output.writeInt(0);
+
+         int p = 0;
+         Map.Entry<Integer, JIntList> addition = additions.firstEntry();
+
+         while (p < previousCount || addition != null) {
+            final int previousKey = p < previousCount ? previous.getInt(previousTable + p * TABLE_ENTRY_SIZE) : Integer.MAX_VALUE;
+            final int key = addition != null ? Math.min(previousKey, addition.getKey()) : previousKey;
+            int[] kept = new int[0];
+            int keptSize = 0;
+
+            if (previousKey == key) {
+               final int entry = previousTable + p * TABLE_ENTRY_SIZE;
+               final int postingPosition = previous.getInt(entry + 4);
+               final int length = previous.getInt(entry + 8);
+               kept = new int[length];
+
+               for (int i = 0; i < length; i++) {
+                  final int oldId = previous.getInt(postingPosition + i * 4);
+                  final int id = remap != null ? remap[oldId] : oldId;
+
+                  if (id >= 0 && (dirty == null || !dirty.get(id))) {
+                     kept[keptSize++] = id;
+                  }
+               }
+
+               p++;
+            }
+
+            JIntList added = null;
+
+            if (addition != null && addition.getKey() == key) {
+               added = addition.getValue();
+               addition = additions.higherEntry(key);
+            }
+
+            final int length = keptSize + (added != null ? added.size : 0);
+
+            if (length == 0) {
+               continue;
+            }
+
+            // Both lists are sorted, so they're merged keeping the order
+            table.add(key);
+            table.add(position);
+            table.add(length);
+
+            for (int i = 0, j = 0; i < keptSize || added != null && j < added.size;) {
+               if (added == null || j >= added.size || i < keptSize && kept[i] < added.values[j]) {
+                  output.writeInt(kept[i++]);
+               } else {
+                  output.writeInt(added.values[j++]);
+               }
+            }
+
+            position += length * 4;
+         }
+
+         for (int i = 0; i < table.size; i++) {
+            output.writeInt(table.values[i]);
+         }
+      }
+
+      final ByteBuffer header = ByteBuffer.allocate(8);
+      header.putInt(table.size / 3);
+      header.putInt(position);
+      header.flip();
+
+      try (final FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+         channel.write(header, 4);
+      }
+
+      Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING);
+   }
+
+   private void writeMembers(final long generation, final List<JIndexedMember> members) throws IOException {
+      final Path temporaryFile = Files.createTempFile(directory, "members", ".tmp");
+
+      try (final OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+         final StringBuilder builder = new StringBuilder(64);
+         builder.append(MEMBERS_HEADER).append(' ').append(generation).append('\n');
+
+         for (final JIndexedMember member : members) {
+            builder.append(member.library).append('\t');
+            builder.append(member.file).append('\t');
+            builder.append(member.member).append('\t');
+            builder.append(member.version).append('\t');
+            builder.append(member.hash).append('\n');
+            output.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+            builder.setLength(0);
+         }
+
+         output.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+      }
+
+      try {
+         Files.move(temporaryFile, directory.resolve(MEMBERS_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final IOException e) {
+         Files.move(temporaryFile, directory.resolve(MEMBERS_FILE), StandardCopyOption.REPLACE_EXISTING);
+      }
+   }
+
+   private JIndexSnapshot load() {
+      final Path membersFile = directory.resolve(MEMBERS_FILE);
+
+      if (!Files.isRegularFile(membersFile)) {
+         return new JIndexSnapshot(0, Collections.emptyList(), null);
+      }
+
+      try {
+         final List<String> lines = Files.readAllLines(membersFile, StandardCharsets.UTF_8);
+         final String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(" ");
+
+         if (header.length != 2 || !MEMBERS_HEADER.equals(header[0])) {
+            return new JIndexSnapshot(0, Collections.emptyList(), null);
+         }
+
+         final long generation = Long.parseLong(header[1]);
+         final List<JIndexedMember> members = new ArrayList<>(lines.size());
+
+         for (final String line : lines.subList(1, lines.size())) {
+            final String[] fields = line.split("\t", -1);
+            members.add(new JIndexedMember(fields[0], fields[1], fields[2], fields[3], fields[4]));
+         }
+
+         final MappedByteBuffer buffer = map(getTrigramsFile(generation));
+         deleteStaleGenerations(generation);
+         return new JIndexSnapshot(generation, members, buffer);
+      } catch (IOException | RuntimeException e) {
+         e.printStackTrace();
+      }
+
+      return new JIndexSnapshot(0, Collections.emptyList(), null);
+   }
+
+   private static MappedByteBuffer map(final Path path) throws IOException {
+      try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+         final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+         if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Invalid trigram index " + path);
+         }
+
+         return buffer;
+      }
+   }
+
+   /**
+    * Deletes the previous generations. Files still mapped may not be deletable on some systems,
+    * and are deleted later.
+    */
+   private void deleteStaleGenerations(final long generation) {
+      final String current = getTrigramsFile(generation).getFileName().toString();
+
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "trigrams.*.idx")) {
+         for (final Path path : stream) {
+            if (!path.getFileName().toString().equals(current)) {
+               try {
+                  Files.delete(path);
+               } catch (final IOException e) {
+                  //
+               }
+            }
+         }
+      } catch (final IOException e) {
+         e.printStackTrace();
+      }
+   }
+
+   private Path getTrigramsFile(final long generation) {
+      return directory.resolve("trigrams." + generation + ".idx");
+   }
+
+   private static Path directoryOf(final Path path) {
+      return path.toAbsolutePath().getParent();
+   }
+
+   static String getKey(final String library, final String file) {
+      return library + "/" + file;
+   }
+
+   private static void addTrigrams(final String line, final BitSet trigrams) {
+      final int length = line.length();
+
+      if (length < 3) {
+         return;
+      }
+
+      char a = Character.toUpperCase(line.charAt(0));
+      char b = Character.toUpperCase(line.charAt(1));
+
+      for (int i = 2; i < length; i++) {
+         final char c = Character.toUpperCase(line.charAt(i));
+         final int trigram = getTrigram(a, b, c);
+
+         if (trigram != BLANK_TRIGRAM) {
+            trigrams.set(trigram);
+         }
+
+         a = b;
+         b = c;
+      }
+   }
+
+   /**
+    * Packs three folded characters. Characters outside Latin-1 may share a trigram with others,
+    * which only adds candidates, as they're confirmed anyway.
+    */
+   private static int getTrigram(final char a, final char b, final char c) {
+      return (a & 0xFF) << 16 | (b & 0xFF) << 8 | c & 0xFF;
+   }
+
+   private static String fold(final String string) {
+      final char[] chars = new char[string.length()];
+
+      for (int i = 0; i < chars.length; i++) {
+         chars[i] = Character.toUpperCase(string.charAt(i));
+      }
+
+      return new String(chars);
+   }
+
+   private static boolean containsFolded(final String line, final String folded) {
+      final int last = line.length() - folded.length();
+
+      search:
+      for (int i = 0; i <= last; i++) {
+         for (int j = 0; j < folded.length(); j++) {
+            if (Character.toUpperCase(line.charAt(i + j)) != folded.charAt(j)) {
+               continue search;
+            }
+         }
+
+         return true;
+      }
+
+      return false;
+   }
+
+   private static int[] intersect(final int[] a, final int[] b) {
+      final int[] result = new int[Math.min(a.length, b.length)];
+      int size = 0;
+
+      for (int i = 0, j = 0; i < a.length && j < b.length;) {
+         if (a[i] < b[j]) {
+            i++;
+         } else if (a[i] > b[j]) {
+            j++;
+         } else {
+            result[size++] = a[i];
+            i++;
+            j++;
+         }
+      }
+
+      return Arrays.copyOf(result, size);
+   }
+
+   /**
+    * An indexed member. Its position in the member list is its document id.
+    */
+   private static final class JIndexedMember
+   {
+      final String library;
+      final String file;
+      final String member;
+      final String version;
+
+      /**
+       * The hash of the source in the cache, empty if not indexed.
+       */
+      final String hash;
+
+      JIndexedMember(final String library, final String file, final String member, final String version, final String hash) {
+         this.library = library;
+         this.file = file;
+         this.member = member;
+         this.version = version;
+         this.hash = hash;
+      }
+
+      JIndexedMember withHash(final String hash) {
+         return new JIndexedMember(library, file, member, version, hash);
+      }
+   }
+
+   /**
+    * An immutable generation of the index.
+    */
+   private static final class JIndexSnapshot
+   {
+      final long generation;
+      final List<JIndexedMember> members;
+      final MappedByteBuffer buffer;
+
+      JIndexSnapshot(final long generation, final List<JIndexedMember> members, final MappedByteBuffer buffer) {
+         this.generation = generation;
+         this.members = Collections.unmodifiableList(members);
+         this.buffer = buffer;
+      }
+
+      /**
+       * Returns the sorted documents which contain the trigram, with a binary search of the table.
+       */
+      int[] getPosting(final int trigram) {
+         if (buffer == null) {
+            return new int[0];
+         }
+
+         final int table = buffer.getInt(8);
+         int low = 0;
+         int high = buffer.getInt(4) - 1;
+
+         while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int entry = table + middle * TABLE_ENTRY_SIZE;
+            final int key = buffer.getInt(entry);
+
+            if (key < trigram) {
+               low = middle + 1;
+            } else if (key > trigram) {
+               high = middle - 1;
+            } else {
+               final int position = buffer.getInt(entry + 4);
+               final int[] posting = new int[buffer.getInt(entry + 8)];
+
+               for (int i = 0; i < posting.length; i++) {
+                  posting[i] = buffer.getInt(position + i * 4);
+               }
+
+               return posting;
+            }
+         }
+
+         return new int[0];
+      }
+   }
+
+   private static final class JIntList
+   {
+      int[] values = new int[8];
+      int size;
+
+      void add(final int value) {
+         if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+         }
+
+         values[size++] = value;
+      }
+   }
+}
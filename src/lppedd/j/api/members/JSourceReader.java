@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.ibm.as400.access.AS400Exception;
+import com.ibm.as400.access.AS400File;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.QSYSObjectPathName;
+import com.ibm.as400.access.Record;
+import com.ibm.as400.access.SequentialFile;
+
+import lppedd.j.api.JConnection;
+
+/**
+ * Reads the lines of a source member one at a time, without keeping the whole member in memory.<br>
+ * Records are fetched from the system in blocks, as specified by the blocking factor.
+ * The member is opened at the first read, and closed when the end is reached or {@link #close()} is called.
+ * <p>
+ * The sequence number and the date of the current line are converted only if requested at creation.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceReader implements AutoCloseable
+{
+   /**
+    * Default number of records fetched with a single call.
+    */
+   public static final int DEFAULT_BLOCKING_FACTOR = 500;
+
+   private final AS400File file;
+   private final int blockingFactor;
+   private final boolean isWithSequenceAndDate;
+
+   private boolean isOpen;
+   private boolean isClosed;
+   private boolean hasFailed;
+
+   private String line;
+   private BigDecimal sequence;
+   private BigDecimal date;
+   private int recordNumber;
+
+   /**
+    * @param ifsPath
+    *        The member IFS path
+    * @param blockingFactor
+    *        The number of records fetched with a single call
+    * @param withSequenceAndDate
+    *        True to read the SRCSEQ and SRCDAT fields too
+    */
+   public JSourceReader(final JConnection connection, final String ifsPath, final int blockingFactor, final boolean withSequenceAndDate) {
+      file = new SequentialFile(connection.getAs400(), ifsPath);
+      this.blockingFactor = blockingFactor;
+      isWithSequenceAndDate = withSequenceAndDate;
+   }
+
+   public JSourceReader(final JConnection connection, final String ifsPath) {
+      this(connection, ifsPath, DEFAULT_BLOCKING_FACTOR, false);
+   }
+
+   /**
+    * Reads the whole source code of a member, with record numbers, sequence numbers and dates.
+    *
+    * @param library
+    *        The member library
+    * @param file
+    *        The member source physical file
+    * @param member
+    *        The member name
+    *
+    * @return The source, or null if the member couldn't be read
+    */
+   public static JMemberSource read(final JConnection connection, final String library, final String file, final String member) {
+      final String ifsPath = QSYSObjectPathName.toPath(library, file, member, "MBR");
+      final List<String> lines = new ArrayList<>(1024);
+      final List<BigDecimal> sequences = new ArrayList<>(1024);
+      final List<BigDecimal> dates = new ArrayList<>(1024);
+      int[] recordNumbers = new int[1024];
+
+      try (final JSourceReader reader = new JSourceReader(connection, ifsPath, DEFAULT_BLOCKING_FACTOR, true)) {
+         while (reader.next()) {
+            if (lines.size() == recordNumbers.length) {
+               recordNumbers = Arrays.copyOf(recordNumbers, recordNumbers.length * 2);
+            }
+
+            recordNumbers[lines.size()] = reader.getRecordNumber();
+            sequences.add(reader.getSequence());
+            dates.add(reader.getDate());
+            lines.add(reader.getLine());
+         }
+
+         if (reader.hasFailed()) {
+            return null;
+         }
+      }
+
+      final int size = lines.size();
+      return new JMemberSource(
+            library,
+            file,
+            member,
+            lines,
+            Arrays.copyOf(recordNumbers, size),
+            sequences.toArray(new BigDecimal[size]),
+            dates.toArray(new BigDecimal[size]));
+   }
+
+   /**
+    * Moves to the next line.
+    *
+    * @return False if there are no more lines, or if the member couldn't be read
+    */
+   public boolean next() {
+      if (isClosed) {
+         return false;
+      }
+
+      try {
+         if (!isOpen) {
+            file.setRecordFormat();
+            file.open(AS400File.READ_ONLY, blockingFactor, AS400File.COMMIT_LOCK_LEVEL_NONE);
+            isOpen = true;
+         }
+
+         final Record record = file.readNext();
+
+         if (record == null) {
+            close();
+            return false;
+         }
+
+         recordNumber = record.getRecordNumber();
+         line = (String) record.getField(2);
+
+         if (isWithSequenceAndDate) {
+            sequence = (BigDecimal) record.getField(0);
+            date = (BigDecimal) record.getField(1);
+         }
+
+         return true;
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException | PropertyVetoException e) {
+         e.printStackTrace();
+      }
+
+      hasFailed = true;
+      close();
+      return false;
+   }
+
+   /**
+    * Returns the next line, or null if there are no more lines.
+    */
+   public String readLine() {
+      return next() ? line : null;
+   }
+
+   /**
+    * Returns the current line.
+    */
+   public String getLine() {
+      return line;
+   }
+
+   /**
+    * Returns the sequence number (SRCSEQ) of the current line, or null if not requested.
+    */
+   public BigDecimal getSequence() {
+      return sequence;
+   }
+
+   /**
+    * Returns the date (SRCDAT) of the current line, or null if not requested.
+    */
+   public BigDecimal getDate() {
+      return date;
+   }
+
+   /**
+    * Returns the record number of the current line.
+    */
+   public int getRecordNumber() {
+      return recordNumber;
+   }
+
+   /**
+    * Checks if the reading stopped because of an error.
+    */
+   public boolean hasFailed() {
+      return hasFailed;
+   }
+
+   /**
+    * Returns a sequential stream over the remaining lines.
+    * Closing the stream closes the reader.
+    */
+   public Stream<String> lines() {
+      final Iterator<String> iterator = new Iterator<String>() {
+         private String nextLine;
+
+         @Override
+         public boolean hasNext() {
+            if (nextLine == null) {
+               nextLine = readLine();
+            }
+
+            return nextLine != null;
+         }
+
+         @Override
+         public String next() {
+            if (!hasNext()) {
+               throw new NoSuchElementException();
+            }
+
+            final String current = nextLine;
+            nextLine = null;
+            return current;
+         }
+      };
+
+      final Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+      return StreamSupport.stream(spliterator, false).onClose(this::close);
+   }
+
+   @Override
+   public void close() {
+      if (isClosed) {
+         return;
+      }
+
+      isClosed = true;
+
+      try {
+         file.close();
+      } catch (AS400Exception | AS400SecurityException | InterruptedException | IOException e) {
+         e.printStackTrace();
+      }
+   }
+}
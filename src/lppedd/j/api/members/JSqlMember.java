@@ -25,11 +25,10 @@ package lppedd.j.api.members;
 
 import lppedd.j.api.JConnection;
 import lppedd.j.api.JType;
-import lppedd.j.api.exceptions.JInvalidWorkItemException;
 import lppedd.j.api.factories.JObjectFactory;
-import lppedd.j.api.misc.Util;
 import smi.workitem.SmiAbstractWorkItem;
 import smi.workitem.SmiSqlWorkItem;
+import smi.workitem.SmiWorkItemScanner;
 
 /**
  * Represents an IBMi SQL source member.
@@ -44,7 +43,7 @@ public class JSqlMember extends JAbstractMember
 
    @Override
    public boolean compile(final String library) {
-      final long time = Long.parseLong(getConnection().getSystemValue("QDATETIME").toString().substring(0, 14) + "000");
+      final long time = Long.parseLong(getConnection().getSystemValues().format("yyyyMMddHHmmss") + "000");
 
       final StringBuilder builder = new StringBuilder(92);
       builder.append("ABCRTSQL SRCFILE(");
@@ -70,23 +69,21 @@ public class JSqlMember extends JAbstractMember
          workItemList.clear();
       }
 
+      final SmiWorkItemScanner scanner = SmiWorkItemScanner.forSql();
+
       for (int i = 0; i < source.size(); i++) {
-         final String line = source.get(i);
+         final CharSequence line = source.getLine(i);
 
          // Sono alla fine dei work item in testatina? Se si, salvo la posizione
-         if (!workItemList.isEmpty() && PATTERN_EOC.matcher(line).matches()) {
+         if (!workItemList.isEmpty() && SmiWorkItemScanner.isEndOfHeader(line)) {
             workItemsEnd = i;
             break;
          }
 
          // Se la linea corrisponde ad un un work item, lo aggiungo alla lista
          // e mi salvo la posizioni in modo da poter, successivamente, andare ad inserire il suo testo
-         if (PATTERN_MOD.matcher(line).matches() && Util.isInteger(line.substring(16, 24))) {
-            try {
-               workItemList.add(new SmiSqlWorkItem(this, line), i);
-            } catch (final JInvalidWorkItemException e) {
-               e.printStackTrace();
-            }
+         if (scanner.scan(line)) {
+            workItemList.add(new SmiSqlWorkItem(this, scanner), i);
          }
       }
 
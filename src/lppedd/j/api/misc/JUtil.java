@@ -136,6 +136,44 @@ public final class JUtil
       return builder.toString();
    }
 
+   /**
+    * Equivale a {@code string.toUpperCase().indexOf(upperCaseString)}, ma senza creare
+    * la copia maiuscola se la stringa contiene solo caratteri ASCII.
+    *
+    * @param string          La stringa in cui cercare
+    * @param upperCaseString La stringa da cercare, gia' in maiuscolo
+    */
+   public static int indexOfUpperCase(final String string, final String upperCaseString) {
+      final int length = string.length();
+      final int searchLength = upperCaseString.length();
+
+      for (int i = 0; i < length; i++) {
+         // Fuori da ASCII la conversione puo' cambiare la lunghezza della stringa
+         if (string.charAt(i) >= 0x80) {
+            return string.toUpperCase().indexOf(upperCaseString);
+         }
+      }
+
+      search:
+      for (int i = 0; i <= length - searchLength; i++) {
+         for (int j = 0; j < searchLength; j++) {
+            char c = string.charAt(i + j);
+
+            if (c >= 'a' && c <= 'z') {
+               c -= 'a' - 'A';
+            }
+
+            if (c != upperCaseString.charAt(j)) {
+               continue search;
+            }
+         }
+
+         return i;
+      }
+
+      return -1;
+   }
+
    /**
     * Commenta una riga di sorgente.
     *
@@ -23,6 +23,15 @@
  */
 package lppedd.j.api.objects;
 
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+
+import com.ibm.as400.access.AS400;
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDescription;
+import com.ibm.as400.access.ObjectDoesNotExistException;
 import com.ibm.as400.access.QSYSObjectPathName;
 
 import lppedd.j.api.JAbstractBase;
@@ -41,13 +50,10 @@ public abstract class JAbstractObject extends JAbstractBase implements JObject
 {
    // OBJD0400 -> QUSROBJD
    protected byte[] OBJD0400;
+   private boolean isObjectDescriptionRetrieved;
 
    protected JAbstractObject(final JConnection connection, final String name, final String library, final JType type) {
       super(connection, name, library, type);
-
-      if (exists()) {
-         retriveObjectDescription();
-      }
    }
 
    @Override
@@ -127,9 +133,64 @@ public abstract class JAbstractObject extends JAbstractBase implements JObject
    }
 
    /**
-    * Calls QUSROBJD API to retrive the object informations.
+    * Populates the object informations from an already loaded object list entry,
+    * so that QUSROBJD doesn't need to be called.
+    * The entry should have been loaded with {@link lppedd.j.api.factories.JObjectFactory#DESCRIPTION_ATTRIBUTES}.
+    *
+    * @return
+    *         True if the informations have been populated, false otherwise
+    */
+   public final boolean loadDescription(final ObjectDescription description) {
+      try {
+         final String text = description.getValueAsString(ObjectDescription.TEXT_DESCRIPTION);
+         final String creator = description.getValueAsString(ObjectDescription.CREATOR_USER_PROFILE);
+         final String attribute = description.getValueAsString(ObjectDescription.EXTENDED_ATTRIBUTE);
+         final Date creationDate = (Date) description.getValue(ObjectDescription.CREATION_DATE);
+
+         this.text = text == null ? "" : text.trim();
+         this.creator = creator == null ? "" : creator.trim();
+
+         if (attribute != null && (this.attribute == null || this.attribute.isEmpty())) {
+            this.attribute = attribute.trim();
+         }
+
+         if (creationDate != null) {
+            // Same format of the QUSROBJD creation timestamp (yyyyMMddHHmmss000)
+            final Calendar calendar = Calendar.getInstance(AS400.getDefaultTimeZone(getConnection().getAs400()));
+            calendar.setTime(creationDate);
+
+            long dateTime = calendar.get(Calendar.YEAR);
+            dateTime = dateTime * 100 + calendar.get(Calendar.MONTH) + 1;
+            dateTime = dateTime * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+            dateTime = dateTime * 100 + calendar.get(Calendar.HOUR_OF_DAY);
+            dateTime = dateTime * 100 + calendar.get(Calendar.MINUTE);
+            dateTime = dateTime * 100 + calendar.get(Calendar.SECOND);
+            creationDateTime = dateTime * 1000;
+         }
+
+         isObjectDescriptionRetrieved = true;
+         return true;
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+         e.printStackTrace();
+      }
+
+      return false;
+   }
+
+   @Override
+   protected void retrieveDescription() {
+      retrieveObjectDescription();
+   }
+
+   /**
+    * Calls QUSROBJD API to retrive the object informations, only the first time.
     */
-   private final void retriveObjectDescription() {
+   protected final void retrieveObjectDescription() {
+      if (isObjectDescriptionRetrieved) {
+         return;
+      }
+
+      isObjectDescriptionRetrieved = true;
       final JApiResult output = JApi.QUSROBJD(getConnection(), "OBJD0400", this);
 
       if (output.getMessages().length != 0) {
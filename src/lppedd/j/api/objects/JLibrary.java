@@ -24,13 +24,12 @@
 package lppedd.j.api.objects;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.ibm.as400.access.AS400SecurityException;
 import com.ibm.as400.access.ErrorCompletingRequestException;
-import com.ibm.as400.access.ObjectDescription;
 import com.ibm.as400.access.ObjectDoesNotExistException;
 import com.ibm.as400.access.ObjectList;
 
@@ -56,28 +55,45 @@ public class JLibrary extends JAbstractObject
     * @return A list of the objects contained in the library
     */
    public List<JObject> getObjects(final JType objectType) {
-      final ObjectList objectList = new ObjectList(getConnection().getAs400(), name, ObjectList.ALL, objectType.getObjectType());
+      final ObjectList objectList = JObjectFactory.newObjectList(getConnection(), name, ObjectList.ALL, objectType);
 
       try {
          objectList.load();
-
-         final int size = objectList.getLength();
-         final List<JObject> objects = new ArrayList<>(size);
-         final ObjectDescription[] objectDescriptions = objectList.getObjects(0, size);
-
-         for (int i = 0; i < size; i++) {
-            final ObjectDescription objectDescription = objectDescriptions[i];
-            objects.add(JObjectFactory.get(getConnection(), objectDescription.getName(), objectDescription.getLibrary(), JType.valueOf(objectDescription.getType())));
-         }
-
-         return objects;
+         return JObjectFactory.get(getConnection(), objectList.getObjects(0, objectList.getLength()));
       } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
          e.printStackTrace();
+      } finally {
+         try {
+            objectList.close();
+         } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+            e.printStackTrace();
+         }
       }
 
       return Collections.emptyList();
    }
 
+   /**
+    * Returns the library content, retrieved one page at a time.
+    * The stream should be closed to release the list on the system.
+    *
+    * @param pageSize
+    *        The number of objects retrieved for each call to the system
+    */
+   public Stream<JObject> streamObjects(final JType objectType, final int pageSize) {
+      return iterateObjects(objectType, pageSize).stream();
+   }
+
+   /**
+    * Returns an iterator over the library content, retrieved one page at a time.
+    *
+    * @param pageSize
+    *        The number of objects retrieved for each call to the system
+    */
+   public JObjectIterator iterateObjects(final JType objectType, final int pageSize) {
+      return new JObjectIterator(getConnection(), JObjectFactory.newObjectList(getConnection(), name, ObjectList.ALL, objectType), pageSize);
+   }
+
    /**
     * Create the library.
     */
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.objects;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.ibm.as400.access.AS400SecurityException;
+import com.ibm.as400.access.ErrorCompletingRequestException;
+import com.ibm.as400.access.ObjectDoesNotExistException;
+import com.ibm.as400.access.ObjectList;
+
+import lppedd.j.api.JConnection;
+import lppedd.j.api.factories.JObjectFactory;
+
+/**
+ * Iterates an object list one page at a time, so that only a page of objects
+ * is kept in memory.
+ * The list is loaded at the first access and closed when the iteration ends,
+ * or when {@link #close()} is called.
+ *
+ * @author Edoardo Luppi
+ */
+public final class JObjectIterator implements Iterator<JObject>, AutoCloseable
+{
+   private final JConnection connection;
+   private final ObjectList objectList;
+   private final int pageSize;
+   private final Map<String, Set<String>> sourceFiles = new HashMap<>(16);
+
+   private List<JObject> page;
+   private int pageIndex;
+   private int offset;
+   private int length = -1;
+   private boolean isClosed;
+
+   /**
+    * @param objectList
+    *        The list to iterate, not yet loaded. See {@link JObjectFactory#newObjectList}
+    * @param pageSize
+    *        The number of entries retrieved for each call to the system
+    */
+   public JObjectIterator(final JConnection connection, final ObjectList objectList, final int pageSize) {
+      if (pageSize < 1) {
+         throw new IllegalArgumentException("Page size must be greater than zero");
+      }
+
+      this.connection = connection;
+      this.objectList = objectList;
+      this.pageSize = pageSize;
+   }
+
+   @Override
+   public boolean hasNext() {
+      if (page != null && pageIndex < page.size()) {
+         return true;
+      }
+
+      if (isClosed) {
+         return false;
+      }
+
+      try {
+         if (length < 0) {
+            objectList.load();
+            length = objectList.getLength();
+         }
+
+         if (offset >= length) {
+            close();
+            return false;
+         }
+
+         final int count = Math.min(pageSize, length - offset);
+         page = JObjectFactory.get(connection, objectList.getObjects(offset, count), sourceFiles);
+         pageIndex = 0;
+         offset += count;
+         return !page.isEmpty() || hasNext();
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+         e.printStackTrace();
+      }
+
+      close();
+      return false;
+   }
+
+   @Override
+   public JObject next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+
+      return page.get(pageIndex++);
+   }
+
+   /**
+    * Returns a sequential stream over the remaining objects.
+    * Closing the stream closes the list.
+    */
+   public Stream<JObject> stream() {
+      final Spliterator<JObject> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+      return StreamSupport.stream(spliterator, false).onClose(this::close);
+   }
+
+   @Override
+   public void close() {
+      if (isClosed) {
+         return;
+      }
+
+      isClosed = true;
+
+      try {
+         objectList.close();
+      } catch (AS400SecurityException | ErrorCompletingRequestException | InterruptedException | IOException | ObjectDoesNotExistException e) {
+         e.printStackTrace();
+      }
+   }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.objects;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lppedd.j.api.JConnection;
+import lppedd.j.api.objects.JUserSpace.JUserSpaceBuilder;
+
+/**
+ * A pool of auto-extendible QTEMP user spaces, reused by the list APIs.<br>
+ * User spaces are created on first need and never deleted while the pool is open, so a list API call costs
+ * only the call itself plus the read of the result.
+ * <p>
+ * A reused user space still contains the data of previous calls past the used portion, thus its content must
+ * always be read through the generic header, e.g. with {@link lppedd.j.api.ibm.JApiList}.
+ *
+ * @author Edoardo Luppi
+ */
+public class JUserSpacePool implements AutoCloseable
+{
+   /**
+    * A user space leased from the pool.<br>
+    * Closing the lease gives the user space back to the pool.
+    */
+   public class JUserSpaceLease implements AutoCloseable
+   {
+      private final JUserSpace userSpace;
+      private boolean isReleased;
+
+      private JUserSpaceLease(final JUserSpace userSpace) {
+         this.userSpace = userSpace;
+      }
+
+      /**
+       * Returns the leased user space.
+       */
+      public JUserSpace getUserSpace() {
+         if (isReleased) {
+            throw new IllegalStateException("The lease has already been released");
+         }
+
+         return userSpace;
+      }
+
+      @Override
+      public void close() {
+         if (!isReleased) {
+            isReleased = true;
+            release(userSpace);
+         }
+      }
+   }
+
+   private static final String NAME_PREFIX = "JUSRSPC";
+
+   private final JConnection connection;
+   private final int length;
+   private final Deque<JUserSpace> idleUserSpaces = new ConcurrentLinkedDeque<>();
+   private final Deque<JUserSpace> userSpaces = new ConcurrentLinkedDeque<>();
+   private final AtomicInteger sequence = new AtomicInteger();
+   private volatile boolean isClosed;
+
+   /**
+    * @param length
+    *        The initial length of each user space
+    */
+   public JUserSpacePool(final JConnection connection, final int length) {
+      this.connection = connection;
+      this.length = length;
+   }
+
+   /**
+    * Leases a user space, creating a new one if none is available.
+    *
+    * @return The lease or {@code null} if a new user space couldn't be created
+    */
+   public JUserSpaceLease lease() {
+      if (isClosed) {
+         throw new IllegalStateException("The user space pool is closed");
+      }
+
+      JUserSpace userSpace = idleUserSpaces.pollFirst();
+
+      if (userSpace == null) {
+         userSpace = newUserSpace();
+
+         if (userSpace == null) {
+            return null;
+         }
+      }
+
+      return new JUserSpaceLease(userSpace);
+   }
+
+   /**
+    * Returns the number of user spaces created by the pool.
+    */
+   public int size() {
+      return userSpaces.size();
+   }
+
+   /**
+    * Returns the number of user spaces currently available for lease.
+    */
+   public int getAvailableCount() {
+      return idleUserSpaces.size();
+   }
+
+   /**
+    * Deletes all the user spaces created by the pool.
+    */
+   @Override
+   public void close() {
+      isClosed = true;
+      idleUserSpaces.clear();
+
+      for (JUserSpace userSpace; (userSpace = userSpaces.pollFirst()) != null;) {
+         userSpace.delete();
+      }
+   }
+
+   private JUserSpace newUserSpace() {
+      final String name = NAME_PREFIX + String.format("%03d", sequence.incrementAndGet() % 1000);
+      final JUserSpace userSpace = new JUserSpaceBuilder(connection, name, "QTEMP")
+            .length(length)
+            .autoExtendible(true)
+            .initialValue((byte) 0x00)
+            .build();
+
+      // A previous pool on the same job might have left it behind
+      userSpace.delete();
+
+      if (!userSpace.create()) {
+         return null;
+      }
+
+      userSpaces.add(userSpace);
+      return userSpace;
+   }
+
+   private void release(final JUserSpace userSpace) {
+      if (!isClosed) {
+         idleUserSpaces.offerFirst(userSpace);
+      }
+   }
+}
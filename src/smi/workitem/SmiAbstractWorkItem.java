@@ -68,6 +68,18 @@ public abstract class SmiAbstractWorkItem
       }
    }
 
+   /**
+    * Crea il work item dall'ultima riga riconosciuta dallo scanner.
+    */
+   public SmiAbstractWorkItem(final JMember parent, final SmiWorkItemScanner scanner) {
+      _parent = parent;
+      _index = scanner.getIndex();
+      _work = scanner.inWork();
+      _user = scanner.getUser();
+      _date = scanner.getDate();
+      _number = scanner.getNumber();
+   }
+
    public SmiAbstractWorkItem(
            final JMember parent,
            final int index,
@@ -79,7 +91,7 @@ public abstract class SmiAbstractWorkItem
       _index = index;
       _work = work;
       _user = user;
-      _date = date < 20000101 || date > 20203112 ? parseLong(_parent.getConnection().getSystemValue("QDATE").toString().replace("-", "")) : date;
+      _date = date < 20000101 || date > 20203112 ? parseLong(_parent.getConnection().getSystemValues().format("yyyyMMdd")) : date;
       _number = number;
    }
 
@@ -38,6 +38,10 @@ public class SmiPgmWorkItem extends SmiAbstractWorkItem
       super(parent, line);
    }
 
+   public SmiPgmWorkItem(final JMember parent, final SmiWorkItemScanner scanner) {
+      super(parent, scanner);
+   }
+
    public SmiPgmWorkItem(
            final JMember parent,
            final int index,
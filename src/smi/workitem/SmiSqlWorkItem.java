@@ -38,6 +38,10 @@ public class SmiSqlWorkItem extends SmiAbstractWorkItem
       super(parent, line);
    }
 
+   public SmiSqlWorkItem(final JMember parent, final SmiWorkItemScanner scanner) {
+      super(parent, scanner);
+   }
+
    public SmiSqlWorkItem(
            final JMember parent,
            final int index,
@@ -0,0 +1,249 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package smi.workitem;
+
+/**
+ * Scanner a colonne per le righe di testatina dei work item SMI.<br>
+ * Riconosce e decodifica una riga in un solo passaggio, senza espressioni regolari
+ * e senza creare stringhe intermedie. Solo l'utente viene estratto come stringa.
+ * <p>
+ * Le colonne sono le stesse di {@link SmiAbstractWorkItem#getElements(String)}. Nei membri SQL
+ * indice e flag sono spostati dal prefisso {@code "--"} di due colonne, mentre utente, data e numero
+ * di una sola, dato che {@code "* "} diventa {@code "*"}.
+ * <p>
+ * Un'istanza conserva i valori dell'ultima riga riconosciuta, quindi non e' thread-safe.
+ *
+ * @author Edoardo Luppi
+ */
+public final class SmiWorkItemScanner
+{
+   private final int prefixLength;
+   private final int keyOffset;
+   private final int dataOffset;
+
+   private int index;
+   private boolean work;
+   private String user;
+   private long date;
+   private int number;
+
+   /**
+    * @param prefixLength
+    *        Lunghezza del prefisso {@code "--"}
+    * @param keyOffset
+    *        Spostamento delle colonne di indice e flag
+    * @param dataOffset
+    *        Spostamento delle colonne di utente, data e numero
+    */
+   private SmiWorkItemScanner(final int prefixLength, final int keyOffset, final int dataOffset) {
+      this.prefixLength = prefixLength;
+      this.keyOffset = keyOffset;
+      this.dataOffset = dataOffset;
+   }
+
+   /**
+    * Ritorna uno scanner per i membri programma e DDS.
+    */
+   public static SmiWorkItemScanner forProgram() {
+      return new SmiWorkItemScanner(0, 0, 0);
+   }
+
+   /**
+    * Ritorna uno scanner per i membri SQL, le cui righe iniziano con {@code "--"}.
+    */
+   public static SmiWorkItemScanner forSql() {
+      return new SmiWorkItemScanner(2, 2, 1);
+   }
+
+   /**
+    * Verifica se la riga e' la testata di un work item e, in tal caso, ne decodifica i valori.
+    *
+    * @return {@code true} se la riga e' un work item valido
+    */
+   public boolean scan(final CharSequence line) {
+      final int length = line.length();
+
+      // 9nnn seguito da spazio o §, ed una data numerica
+      if (length < dataOffset + 23 || (prefixLength > 0 && (line.charAt(0) != '-' || line.charAt(1) != '-'))) {
+         return false;
+      }
+
+      if (line.charAt(keyOffset) != '9' || !isAsciiDigit(line.charAt(keyOffset + 1)) || !isAsciiDigit(line.charAt(keyOffset + 2)) || !isAsciiDigit(line.charAt(keyOffset + 3))) {
+         return false;
+      }
+
+      final char flag = line.charAt(keyOffset + 4);
+
+      if (flag != ' ' && flag != '\u00A7' || hasLineTerminator(line, keyOffset + 5)) {
+         return false;
+      }
+
+      final long parsedDate = parseDate(line, dataOffset + 15, dataOffset + 23);
+      final long parsedNumber = parseNumber(line, dataOffset + 33, Math.min(length, dataOffset + 43));
+
+      if (parsedDate == Long.MIN_VALUE || parsedNumber == Long.MIN_VALUE) {
+         return false;
+      }
+
+      index = (line.charAt(keyOffset) - '0') * 1000
+            + (line.charAt(keyOffset + 1) - '0') * 100
+            + (line.charAt(keyOffset + 2) - '0') * 10
+            + line.charAt(keyOffset + 3) - '0';
+      work = flag == '\u00A7';
+      user = line.subSequence(dataOffset + 8, dataOffset + 14).toString();
+      date = parsedDate;
+      number = (int) parsedNumber;
+      return true;
+   }
+
+   /**
+    * Verifica se la riga chiude la testatina dei work item, cioe' se contiene
+    * almeno quattro caratteri consecutivi fra {@code * = § -}.
+    */
+   public static boolean isEndOfHeader(final CharSequence line) {
+      final int length = line.length();
+      int run = 0;
+      boolean found = false;
+
+      for (int i = 0; i < length; i++) {
+         final char c = line.charAt(i);
+
+         if (c == '*' || c == '=' || c == '\u00A7' || c == '-') {
+            found |= ++run >= 4;
+         } else if (isLineTerminator(c)) {
+            return false;
+         } else {
+            run = 0;
+         }
+      }
+
+      return found;
+   }
+
+   public int getIndex() {
+      return index;
+   }
+
+   public boolean inWork() {
+      return work;
+   }
+
+   public String getUser() {
+      return user;
+   }
+
+   public long getDate() {
+      return date;
+   }
+
+   public int getNumber() {
+      return number;
+   }
+
+   /**
+    * Decodifica la data, con segno opzionale, come {@code Util.isInteger} seguito da {@code Long.parseLong}.
+    *
+    * @return La data o {@link Long#MIN_VALUE} se non numerica
+    */
+   private static long parseDate(final CharSequence line, final int start, final int end) {
+      final boolean negative = line.charAt(start) == '-';
+      long value = 0;
+
+      for (int i = negative ? start + 1 : start; i < end; i++) {
+         final int digit = Character.digit(line.charAt(i), 10);
+
+         if (digit < 0) {
+            return Long.MIN_VALUE;
+         }
+
+         value = value * 10 + digit;
+      }
+
+      return negative ? -value : value;
+   }
+
+   /**
+    * Decodifica il numero di work item, ignorando gli spazi ai lati, come {@code trim()} seguito da {@code Integer.parseInt}.
+    *
+    * @return Il numero o {@link Long#MIN_VALUE} se non valido
+    */
+   private static long parseNumber(final CharSequence line, int start, int end) {
+      while (start < end && line.charAt(start) <= ' ') {
+         start++;
+      }
+
+      while (end > start && line.charAt(end - 1) <= ' ') {
+         end--;
+      }
+
+      if (start >= end) {
+         return Long.MIN_VALUE;
+      }
+
+      final char sign = line.charAt(start);
+
+      if ((sign == '+' || sign == '-') && ++start == end) {
+         return Long.MIN_VALUE;
+      }
+
+      long value = 0;
+
+      for (int i = start; i < end; i++) {
+         final int digit = Character.digit(line.charAt(i), 10);
+
+         if (digit < 0) {
+            return Long.MIN_VALUE;
+         }
+
+         value = value * 10 + digit;
+      }
+
+      if (sign == '-') {
+         value = -value;
+      }
+
+      return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+   }
+
+   private static boolean isAsciiDigit(final char c) {
+      return c >= '0' && c <= '9';
+   }
+
+   private static boolean hasLineTerminator(final CharSequence line, final int start) {
+      for (int i = start; i < line.length(); i++) {
+         if (isLineTerminator(line.charAt(i))) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Caratteri non riconosciuti da {@code .} nelle espressioni regolari.
+    */
+   private static boolean isLineTerminator(final char c) {
+      return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+   }
+}
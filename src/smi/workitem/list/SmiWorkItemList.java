@@ -25,6 +25,7 @@ package smi.workitem.list;
 
 import static java.lang.System.arraycopy;
 import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
 import static lppedd.j.api.misc.Pair.of;
 
 import java.util.ArrayList;
@@ -34,21 +35,29 @@ import smi.workitem.SmiAbstractWorkItem;
 
 /**
  * {@code Work item : posizione nel sorgente}<br>
- * Il funzionamento e' identico a quello di un {@link ArrayList}
+ * Il funzionamento e' identico a quello di un {@link ArrayList}.<br>
+ * La ricerca per numero di work item usa un indice hash ad indirizzamento aperto,
+ * aggiornato ad ogni aggiunta e rimozione.
  *
  * @author Edoardo Luppi
  */
 public final class SmiWorkItemList
 {
    private static final int INITIAL_SIZE = 50;
+   private static final int EMPTY = -1;
    
    private SmiAbstractWorkItem[] _workItems;
    private int[] _workItemPositions;
    private int _size;
    
+   // Indice numero di work item -> posizione nella lista, con sondaggio lineare.
+   // In caso di numeri duplicati viene indicizzata solo la prima occorrenza, come per una ricerca sequenziale
+   private int[] _indexNumbers;
+   private int[] _indexSlots;
+   private int _indexMask;
+   
    public SmiWorkItemList() {
-      _workItems = new SmiAbstractWorkItem[INITIAL_SIZE];
-      _workItemPositions = new int[INITIAL_SIZE];
+      this(INITIAL_SIZE);
    }
    
    public SmiWorkItemList(final int initialSize) {
@@ -58,12 +67,14 @@ public final class SmiWorkItemList
       
       _workItems = new SmiAbstractWorkItem[initialSize];
       _workItemPositions = new int[initialSize];
+      allocateIndex(initialSize);
    }
    
    public void add(final SmiAbstractWorkItem workItem, final int position) {
       ensureCapacity(_size + 1);
       _workItems[_size] = workItem;
       _workItemPositions[_size] = position;
+      indexSlot(_size);
       _size++;
    }
    
@@ -83,6 +94,18 @@ public final class SmiWorkItemList
       return _workItemPositions[index];
    }
    
+   /**
+    * Sposta nel sorgente le posizioni dei work item a partire dall'indice specificato.
+    *
+    * @param index Il primo work item da spostare
+    * @param delta Il numero di righe di cui spostare, negativo verso l'inizio del sorgente
+    */
+   public void shiftPositions(final int index, final int delta) {
+      for (int i = index; i < _size; i++) {
+         _workItemPositions[i] += delta;
+      }
+   }
+   
    public Pair<SmiAbstractWorkItem, Integer> remove(final int index) {
       if (index < 0 || index >= _size) {
          throw new IndexOutOfBoundsException();
@@ -97,13 +120,19 @@ public final class SmiWorkItemList
       }
       
       _workItems[--_size] = null;
+      
+      // Le posizioni successive sono cambiate, quindi l'indice va ricostruito
+      rebuildIndex();
       return oldValue;
    }
    
+   /**
+    * Ritorna la posizione nella lista del work item, o -1 se non presente.
+    */
    public int contains(final int workItemNumber) {
-      for (int i = 0; i < _size; i++) {
-         if (_workItems[i].getNumber() == workItemNumber) {
-            return i;
+      for (int i = hash(workItemNumber); _indexSlots[i] != EMPTY; i = (i + 1) & _indexMask) {
+         if (_indexNumbers[i] == workItemNumber) {
+            return _indexSlots[i];
          }
       }
       
@@ -116,6 +145,7 @@ public final class SmiWorkItemList
       }
       
       _size = 0;
+      fill(_indexSlots, EMPTY);
    }
    
    public int size() {
@@ -134,9 +164,52 @@ public final class SmiWorkItemList
    
    private void ensureCapacity(final int size) {
       if (size > _workItems.length) {
-         final int newSize = _workItems.length + 30;
+         final int newSize = Math.max(size, _workItems.length + (_workItems.length >> 1));
          _workItems = copyOf(_workItems, newSize);
          _workItemPositions = copyOf(_workItemPositions, newSize);
       }
+      
+      // L'indice viene mantenuto pieno al massimo per meta'
+      if (size * 2 > _indexSlots.length) {
+         allocateIndex(size);
+         rebuildIndex();
+      }
+   }
+   
+   private void allocateIndex(final int size) {
+      final int capacity = Integer.highestOneBit(Math.max(size, 8) * 2 - 1) << 1;
+      _indexNumbers = new int[capacity];
+      _indexSlots = new int[capacity];
+      _indexMask = capacity - 1;
+      fill(_indexSlots, EMPTY);
+   }
+   
+   private void rebuildIndex() {
+      fill(_indexSlots, EMPTY);
+      
+      for (int i = 0; i < _size; i++) {
+         indexSlot(i);
+      }
+   }
+   
+   private void indexSlot(final int slot) {
+      final int number = _workItems[slot].getNumber();
+      int i = hash(number);
+      
+      while (_indexSlots[i] != EMPTY) {
+         if (_indexNumbers[i] == number) {
+            return;
+         }
+         
+         i = (i + 1) & _indexMask;
+      }
+      
+      _indexNumbers[i] = number;
+      _indexSlots[i] = slot;
+   }
+   
+   private int hash(final int number) {
+      final int h = number * 0x9E3779B9;
+      return (h ^ (h >>> 16)) & _indexMask;
    }
 }
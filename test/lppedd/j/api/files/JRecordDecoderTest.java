@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.files;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.Test;
+
+/**
+ * Checks the decoding of raw record bytes, which doesn't need a connection.
+ *
+ * @author Edoardo Luppi
+ */
+public class JRecordDecoderTest
+{
+   @Test
+   public void zoned() {
+      final Object[][] cases = {
+            { bytes(0xF1, 0xF2, 0xF3), 123L },
+            { bytes(0xF1, 0xF2, 0xC3), 123L },
+            { bytes(0xF1, 0xF2, 0xD3), -123L },
+            { bytes(0xF1, 0xF2, 0xB3), -123L },
+            { bytes(0xF0, 0xF0, 0xD0), 0L },
+            { bytes(0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xF9, 0xD9), -999_999_999_999_999_999L } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed((byte[]) c[0]);
+         assertEquals(hex(record), c[1], JRecordDecoder.decodeZoned(record, 1, record.length - 1));
+      }
+   }
+
+   @Test
+   public void packed() {
+      final Object[][] cases = {
+            { bytes(0x12, 0x34, 0x5F), 12345L },
+            { bytes(0x12, 0x34, 0x5C), 12345L },
+            { bytes(0x12, 0x34, 0x5D), -12345L },
+            { bytes(0x12, 0x34, 0x5B), -12345L },
+            { bytes(0x00, 0x0D), 0L },
+            { bytes(0x9D), -9L },
+            { bytes(0x99, 0x99, 0x99, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9D), -99_999_999_999_999_999L } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed((byte[]) c[0]);
+         assertEquals(hex(record), c[1], JRecordDecoder.decodePacked(record, 1, record.length - 1));
+      }
+   }
+
+   @Test
+   public void binary() {
+      final Object[][] cases = {
+            { bytes(0x00, 0x7B), 123L },
+            { bytes(0xFF, 0xFE), -2L },
+            { bytes(0x80, 0x00, 0x00, 0x00), (long) Integer.MIN_VALUE },
+            { bytes(0x00, 0x00, 0x00, 0x00, 0xFF, 0xFF, 0xFF, 0xFF), 0xFFFFFFFFL } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed((byte[]) c[0]);
+         assertEquals(hex(record), c[1], JRecordDecoder.decodeBinary(record, 1, record.length - 1));
+      }
+   }
+
+   @Test
+   public void largeDecimal() {
+      final byte[] zoned = new byte[20];
+      final byte[] packed = new byte[16];
+
+      for (int i = 0; i < zoned.length; i++) {
+         zoned[i] = (byte) (0xF0 | (i + 1) % 10);
+      }
+
+      for (int i = 0; i < packed.length; i++) {
+         packed[i] = (byte) 0x98;
+      }
+
+      final byte[] positiveZoned = zoned.clone();
+      final byte[] positivePacked = packed.clone();
+      zoned[zoned.length - 1] = (byte) 0xD0;
+      packed[packed.length - 1] = (byte) 0x9B;
+      positivePacked[packed.length - 1] = (byte) 0x9C;
+
+      final Object[][] cases = {
+            { positiveZoned, true, 0, new BigDecimal("12345678901234567890") },
+            { zoned, true, 0, new BigDecimal("-12345678901234567890") },
+            { zoned, true, 2, new BigDecimal("-123456789012345678.90") },
+            { positivePacked, false, 0, new BigDecimal("9898989898989898989898989898989") },
+            { packed, false, 5, new BigDecimal("-98989898989898989898989898.98989") } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed((byte[]) c[0]);
+         assertEquals(hex(record), c[3], JRecordDecoder.decodeLargeDecimal(record, 1, record.length - 1, (Boolean) c[1], (Integer) c[2]));
+      }
+   }
+
+   @Test
+   public void variableLength() {
+      // Length prefix, for a field of 10 characters
+      final Object[][] cases = {
+            { bytes(0x00, 0x05), 5 },
+            { bytes(0x00, 0x00), 0 },
+            { bytes(0x00, 0x0A), 10 },
+            { bytes(0x00, 0x0B), 10 },
+            { bytes(0x01, 0x00), 10 },
+            { bytes(0xFF, 0xFF), 10 } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed((byte[]) c[0]);
+         assertEquals(hex(record), c[1], JRecordDecoder.decodeVariableLength(record, 1, 12));
+      }
+   }
+
+   @Test
+   public void localDate() throws UnsupportedEncodingException {
+      final Object[][] cases = {
+            { "2026-10-17", LocalDate.of(2026, 10, 17) },
+            { "10/17/2026", LocalDate.of(2026, 10, 17) },
+            { "17.10.2026", LocalDate.of(2026, 10, 17) },
+            { "0001-01-01", LocalDate.of(1, 1, 1) },
+            { "2026-13-01", null },
+            { "02/30/2026", null },
+            { "2026/10-17", null },
+            { "2026-10/17", null },
+            { "26-10-17  ", null },
+            { "          ", null } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed(ebcdic((String) c[0]));
+         assertEquals((String) c[0], c[1], JRecordDecoder.decodeLocalDate(record, 1, 10));
+      }
+
+      assertEquals(null, JRecordDecoder.decodeLocalDate(ebcdic("26-10-17"), 0, 8));
+   }
+
+   @Test
+   public void localTime() throws UnsupportedEncodingException {
+      final Object[][] cases = {
+            { "13.45.30", LocalTime.of(13, 45, 30) },
+            { "13:45:30", LocalTime.of(13, 45, 30) },
+            { "00.00.00", LocalTime.MIDNIGHT },
+            { "12:30 AM", null },
+            { "01:45 PM", null },
+            { "25.00.00", null },
+            { "13.45:30", null },
+            { "        ", null } };
+
+      for (final Object[] c : cases) {
+         final byte[] record = prefixed(ebcdic((String) c[0]));
+         assertEquals((String) c[0], c[1], JRecordDecoder.decodeLocalTime(record, 1, 8));
+      }
+   }
+
+   private static byte[] bytes(final int... values) {
+      final byte[] bytes = new byte[values.length];
+
+      for (int i = 0; i < values.length; i++) {
+         bytes[i] = (byte) values[i];
+      }
+
+      return bytes;
+   }
+
+   /**
+    * Puts a byte before the value, so that it is decoded at a non-zero offset.
+    */
+   private static byte[] prefixed(final byte[] value) {
+      final byte[] record = new byte[value.length + 1];
+      record[0] = (byte) 0xFF;
+      System.arraycopy(value, 0, record, 1, value.length);
+      return record;
+   }
+
+   private static byte[] ebcdic(final String string) throws UnsupportedEncodingException {
+      return string.getBytes("Cp037");
+   }
+
+   private static String hex(final byte[] bytes) {
+      final StringBuilder builder = new StringBuilder(bytes.length * 2);
+
+      for (final byte b : bytes) {
+         builder.append(String.format("%02X", b & 0xFF));
+      }
+
+      return builder.toString();
+   }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import smi.workitem.SmiPgmWorkItem;
+
+/**
+ * Checks the source editing of {@link JAbstractMember}, which doesn't need a connection.
+ *
+ * @author Edoardo Luppi
+ */
+public class JAbstractMemberTest
+{
+   private static final String[] BODY_LINES = {
+         "     A          R RECORD",
+         "     A            FIELD1        10A         ",
+         "9000 A            FIELD2         5S 0",
+         "   9000 A            FIELD3        10A      ",
+         "9000 A  EX 8999   A            FIELD4         7P 2",
+         "90001A            FIELD5        10A",
+         "8999 A            FIELD6         1A",
+         "9000",
+         "",
+         "      " };
+
+   @Test
+   public void removeWorkItemSpecs() {
+      // Below and above the size at which lines are rebuilt in parallel
+      for (final int bodySize : new int[] { 1000, 2048, 2049, 20_000 }) {
+         final Random random = new Random(bodySize);
+         final JDdsMember member = new JDdsMember(null, "MEMBER", "QDDSSRC", "LIBRARY");
+         final List<String> body = new ArrayList<>(bodySize);
+         body.add("     A*------------------------------------------------------------------");
+
+         for (int i = 1; i < bodySize; i++) {
+            body.add(BODY_LINES[random.nextInt(BODY_LINES.length)]);
+         }
+
+         final List<String> source = new ArrayList<>(new SmiPgmWorkItem(null, 9000, 1234, "LUPPED", 20190101, false).getSource());
+         source.addAll(body);
+         member.setSource(source);
+         member.inspectForWorkItems();
+         member.removeWorkItem(1234, true);
+         assertEquals("Body size " + bodySize, expectedBody(member, body, "9000"), new ArrayList<>(member.getSource()));
+      }
+   }
+
+   @Test
+   public void setSourceOfItsOwnView() {
+      final JDdsMember member = new JDdsMember(null, "MEMBER", "QDDSSRC", "LIBRARY");
+      final List<String> lines = Arrays.asList("     A          R RECORD", "     A            FIELD         10A", "");
+      member.setSource(lines);
+
+      member.setSource(member.getSource());
+      assertEquals(lines, member.getSource());
+
+      member.setSource(member.getSource().subList(1, 3));
+      assertEquals(lines.subList(1, 3), new ArrayList<>(member.getSource()));
+   }
+
+   /**
+    * Removes the work item from the body line by line, the straightforward way.
+    */
+   private static List<String> expectedBody(final JAbstractMember member, final List<String> body, final String modificationNumber) {
+      final List<String> expected = new ArrayList<>(body);
+
+      for (final ListIterator<String> iterator = expected.listIterator(); iterator.hasNext();) {
+         final String line = iterator.next().trim();
+
+         if (line.startsWith(modificationNumber)) {
+            final String rebuilt = member.backToThePast(line, modificationNumber);
+
+            if (rebuilt != null) {
+               iterator.set(rebuilt);
+            } else {
+               iterator.remove();
+            }
+         }
+      }
+
+      return expected;
+   }
+}
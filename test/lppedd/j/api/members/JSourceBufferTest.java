@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link JSourceBuffer} with an {@link ArrayList} under random edits.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceBufferTest
+{
+   private static final int OPERATIONS = 20_000;
+
+   @Test
+   public void randomEdits() {
+      for (long seed = 0; seed < 8; seed++) {
+         final Random random = new Random(seed);
+         final JSourceBuffer buffer = new JSourceBuffer(16);
+         final List<String> expected = new ArrayList<>();
+
+         for (int operation = 0; operation < OPERATIONS; operation++) {
+            edit(random, buffer, expected);
+            assertEquals("Seed " + seed + ", operation " + operation, expected.size(), buffer.size());
+         }
+
+         assertEquals("Seed " + seed, expected, buffer);
+
+         for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), buffer.getLine(i).toString());
+            assertEquals(expected.get(i).length(), buffer.getLineLength(i));
+         }
+      }
+   }
+
+   @Test
+   public void workItemEdits() {
+      for (long seed = 0; seed < 8; seed++) {
+         final Random random = new Random(seed);
+         final JSourceBuffer buffer = new JSourceBuffer(16);
+         final List<String> expected = new ArrayList<>();
+         int headerEnd = 0;
+
+         for (int i = 0; i < 3000; i++) {
+            final String line = line(random);
+            buffer.add(line);
+            expected.add(line);
+         }
+
+         for (int round = 0; round < 300; round++) {
+            // Header lines are stamped at the end of the header, as addWorkItem does
+            final List<String> header = lines(random);
+            buffer.addAll(headerEnd, header);
+            expected.addAll(headerEnd, header);
+            headerEnd += header.size();
+
+            if (random.nextBoolean()) {
+               // Small bodies are rebuilt in place
+               for (int i = headerEnd; i < expected.size(); i++) {
+                  if (random.nextInt(8) == 0) {
+                     final String line = line(random);
+                     buffer.set(i, line);
+                     expected.set(i, line);
+                  } else if (random.nextInt(32) == 0) {
+                     buffer.remove(i);
+                     expected.remove(i);
+                  }
+               }
+            } else {
+               // Large bodies are rebuilt aside, then replaced
+               final List<String> body = new ArrayList<>(expected.subList(headerEnd, expected.size()));
+
+               for (int i = 0; i < body.size(); i++) {
+                  if (random.nextInt(8) == 0) {
+                     body.set(i, line(random));
+                  }
+               }
+
+               buffer.subList(headerEnd, buffer.size()).clear();
+               buffer.addAll(body);
+               expected.subList(headerEnd, expected.size()).clear();
+               expected.addAll(body);
+            }
+
+            assertEquals("Seed " + seed + ", round " + round, expected, buffer);
+         }
+      }
+   }
+
+   private static void edit(final Random random, final JSourceBuffer buffer, final List<String> expected) {
+      final int size = expected.size();
+      final int choice = random.nextInt(size > 0 ? 100 : 40);
+
+      if (choice < 20) {
+         final String line = line(random);
+         buffer.add(line);
+         expected.add(line);
+      } else if (choice < 30) {
+         final int index = random.nextInt(size + 1);
+         final String line = line(random);
+         buffer.add(index, line);
+         expected.add(index, line);
+      } else if (choice < 39) {
+         final int index = random.nextInt(size + 1);
+         final List<String> lines = lines(random);
+         buffer.addAll(index, lines);
+         expected.addAll(index, lines);
+      } else if (choice < 40) {
+         if (random.nextInt(8) == 0) {
+            buffer.clear();
+            expected.clear();
+         }
+      } else if (choice < 65) {
+         final int index = random.nextInt(size);
+         final String line = line(random);
+         assertEquals(expected.set(index, line), buffer.set(index, line));
+      } else if (choice < 85) {
+         final int index = random.nextInt(size);
+         assertEquals(expected.remove(index), buffer.remove(index));
+      } else {
+         // Removes a range and replaces it, as work item edits do
+         final int from = random.nextInt(size);
+         final int to = from + random.nextInt(Math.min(size - from, 64) + 1);
+         buffer.subList(from, to).clear();
+         expected.subList(from, to).clear();
+
+         final List<String> lines = lines(random);
+         buffer.addAll(from, lines);
+         expected.addAll(from, lines);
+      }
+   }
+
+   private static List<String> lines(final Random random) {
+      final int count = random.nextInt(64);
+      final List<String> lines = new ArrayList<>(count);
+
+      for (int i = 0; i < count; i++) {
+         lines.add(line(random));
+      }
+
+      return lines;
+   }
+
+   private static String line(final Random random) {
+      final int length = random.nextInt(4) == 0 ? 0 : random.nextInt(400);
+      final boolean isLatin1 = random.nextInt(10) != 0;
+      final char[] chars = new char[length];
+
+      for (int i = 0; i < length; i++) {
+         chars[i] = isLatin1 ? (char) (0x20 + random.nextInt(0xE0)) : (char) (0x20 + random.nextInt(0x3000));
+      }
+
+      return new String(chars);
+   }
+}
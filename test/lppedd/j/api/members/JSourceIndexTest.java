@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package lppedd.j.api.members;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Builds and updates a {@link JSourceIndex} over a local cache, with the members of a fake system.
+ *
+ * @author Edoardo Luppi
+ */
+public class JSourceIndexTest
+{
+   private static final String LIBRARY = "LIBRARY";
+   private static final String FILE = "QRPGLESRC";
+
+   @Rule
+   public final TemporaryFolder folder = new TemporaryFolder();
+
+   private JSourceCache cache;
+   private Path indexDirectory;
+
+   /**
+    * The members on the fake system.
+    */
+   private final Map<String, JMemberSource> system = new HashMap<>();
+
+   /**
+    * The members downloaded from the fake system.
+    */
+   private final List<String> downloaded = new ArrayList<>();
+
+   @Before
+   public void setUp() throws IOException {
+      cache = new JSourceCache(folder.newFolder("cache").toPath());
+      indexDirectory = folder.getRoot().toPath().resolve("index");
+   }
+
+   @Test
+   public void addChangeRemove() {
+      final JSourceIndex index = new JSourceIndex(indexDirectory, cache);
+      putMember("A", "     D ALPHA           S             10A");
+      putMember("B", "     D BETA            S             10A");
+
+      assertEquals(2, refresh(index, "A", "1", "B", "1"));
+      assertEquals(Arrays.asList("A", "B"), downloaded);
+      assertEquals(Collections.singletonList("A"), search(index, "alpha"));
+      assertEquals(Collections.singletonList("B"), search(index, "BETA"));
+
+      // A changed: only A is downloaded and reindexed
+      downloaded.clear();
+      putMember("A", "     D GAMMA           S             10A");
+      assertEquals(1, refresh(index, "A", "2", "B", "1"));
+      assertEquals(Collections.singletonList("A"), downloaded);
+      assertEquals(Collections.emptyList(), search(index, "ALPHA"));
+      assertEquals(Collections.singletonList("A"), search(index, "GAMMA"));
+      assertEquals(Collections.singletonList("B"), search(index, "BETA"));
+
+      // A removed and C added: B takes the first document id
+      downloaded.clear();
+      putMember("C", "     D DELTA           S             10A");
+      assertEquals(1, refresh(index, "B", "1", "C", "1"));
+      assertEquals(Collections.singletonList("C"), downloaded);
+      assertEquals(2, index.size());
+      assertEquals(Collections.emptyList(), search(index, "GAMMA"));
+      assertEquals(Collections.singletonList("B"), search(index, "BETA"));
+      assertEquals(Collections.singletonList("C"), search(index, "DELTA"));
+      assertEquals(Arrays.asList("B", "C"), search(index, "10A"));
+
+      // Nothing changed
+      downloaded.clear();
+      assertEquals(0, refresh(index, "B", "1", "C", "1"));
+      assertEquals(Collections.emptyList(), downloaded);
+
+      // The index is read back from disk
+      final JSourceIndex reloaded = new JSourceIndex(indexDirectory, cache);
+      assertEquals(Collections.singletonList("B"), search(reloaded, "BETA"));
+      assertEquals(Collections.singletonList("C"), search(reloaded, "DELTA"));
+   }
+
+   @Test
+   public void searchAfterCacheUpdate() {
+      final JSourceIndex index = new JSourceIndex(indexDirectory, cache);
+      putMember("A", "     D ALPHA           S             10A");
+      refresh(index, "A", "1");
+
+      // The member is loaded again after a change, but the index isn't refreshed yet
+      cache.put(newSource("A", "     D OMEGA           S             10A"), "2");
+
+      assertEquals(Collections.singletonList("A"), search(index, "ALPHA"));
+      assertEquals(Collections.emptyList(), search(index, "OMEGA"));
+   }
+
+   @Test
+   public void multiBatchBuild() {
+      final int count = 5000;
+      final String[] versions = new String[count * 2];
+
+      for (int i = 0; i < count; i++) {
+         final String name = String.format("M%04d", i);
+         putMember(name, "     C                   EVAL      X = '" + name + "'");
+         versions[i * 2] = name;
+         versions[i * 2 + 1] = "1";
+
+         // Every member but a few is already cached, in both batches
+         if (i % 1000 != 7) {
+            cache.put(system.get(name), "1");
+         }
+      }
+
+      final JSourceIndex index = new JSourceIndex(indexDirectory, cache);
+      assertEquals(count, refresh(index, versions));
+      assertEquals(Arrays.asList("M0007", "M1007", "M2007", "M3007", "M4007"), downloaded);
+      assertEquals(count, index.size());
+      assertEquals(Collections.singletonList("M0001"), search(index, "'M0001'"));
+      assertEquals(Collections.singletonList("M4007"), search(index, "'M4007'"));
+      assertEquals(Collections.singletonList("M4999"), search(index, "'m4999'"));
+      assertEquals(count, search(index, "EVAL").size());
+   }
+
+   private void putMember(final String name, final String line) {
+      system.put(name, newSource(name, line));
+   }
+
+   private static JMemberSource newSource(final String name, final String line) {
+      return new JMemberSource(
+            LIBRARY,
+            FILE,
+            name,
+            Collections.singletonList(line),
+            new int[] { 1 },
+            new BigDecimal[] { BigDecimal.valueOf(100, 2) },
+            new BigDecimal[] { BigDecimal.ZERO });
+   }
+
+   /**
+    * @param versions
+    *        Member names and versions, in pairs
+    */
+   private int refresh(final JSourceIndex index, final String... versions) {
+      final Map<String, String> fileVersions = new HashMap<>();
+
+      for (int i = 0; i < versions.length; i += 2) {
+         fileVersions.put(versions[i], versions[i + 1]);
+      }
+
+      final Map<String, Map<String, String>> allVersions = new HashMap<>();
+      allVersions.put(JSourceIndex.getKey(LIBRARY, FILE), fileVersions);
+
+      return index.refresh(allVersions, (library, file, members, consumer) -> {
+         for (final String member : members) {
+            downloaded.add(member);
+            consumer.accept(system.get(member));
+         }
+      });
+   }
+
+   private static List<String> search(final JSourceIndex index, final String string) {
+      final List<String> members = new ArrayList<>();
+      index.search(string, hit -> members.add(hit.getMember()));
+      return members;
+   }
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Edoardo Luppi <lp.edoardo@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package smi.workitem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import lppedd.j.api.misc.Util;
+
+/**
+ * Confronta {@link SmiWorkItemScanner} con le righe generate dai work item
+ * e con il riconoscimento originale, basato su espressione regolare e {@code getElements}.
+ *
+ * @author Edoardo Luppi
+ */
+public class SmiWorkItemScannerTest
+{
+   private static final Pattern PATTERN_MOD = Pattern.compile("^((9|--9)[0-9]{3}[ \u00A7].*)");
+   private static final String MUTATIONS = "0123456789 -+*\u00A7aZ\n";
+
+   @Test
+   public void sqlSource() {
+      checkSource(SmiWorkItemScanner.forSql(), true);
+   }
+
+   @Test
+   public void programSource() {
+      checkSource(SmiWorkItemScanner.forProgram(), false);
+   }
+
+   @Test
+   public void sqlRegexEquivalence() {
+      checkRegexEquivalence(SmiWorkItemScanner.forSql(), true);
+   }
+
+   @Test
+   public void programRegexEquivalence() {
+      checkRegexEquivalence(SmiWorkItemScanner.forProgram(), false);
+   }
+
+   private static void checkSource(final SmiWorkItemScanner scanner, final boolean isSql) {
+      final Random random = new Random(1);
+
+      for (int i = 0; i < 10_000; i++) {
+         final SmiAbstractWorkItem workItem = newWorkItem(random, isSql);
+         final String line = workItem.getSource().get(0);
+
+         assertTrue(line, scanner.scan(line));
+         assertEquals(line, workItem.getIndex(), scanner.getIndex());
+         assertEquals(line, workItem.getUser(), scanner.getUser());
+         assertEquals(line, workItem.getDate(), scanner.getDate());
+         assertEquals(line, workItem.getNumber(), scanner.getNumber());
+      }
+   }
+
+   private static void checkRegexEquivalence(final SmiWorkItemScanner scanner, final boolean isSql) {
+      final Random random = new Random(2);
+      final SmiAbstractWorkItem reference = newWorkItem(random, isSql);
+
+      for (int i = 0; i < 100_000; i++) {
+         final StringBuilder builder = new StringBuilder(newWorkItem(random, isSql).getSource().get(0));
+         final int mutations = random.nextInt(4);
+
+         for (int m = 0; m < mutations && builder.length() > 0; m++) {
+            final int position = random.nextInt(builder.length());
+
+            if (random.nextInt(8) == 0) {
+               builder.setLength(position);
+            } else {
+               builder.setCharAt(position, MUTATIONS.charAt(random.nextInt(MUTATIONS.length())));
+            }
+         }
+
+         final String line = builder.toString();
+         final String[] elements = parse(reference, line);
+
+         assertEquals(line, elements != null, scanner.scan(line));
+
+         if (elements != null) {
+            assertEquals(line, Integer.parseInt(elements[SmiAbstractWorkItem.INDEX]), scanner.getIndex());
+            assertEquals(line, "\u00A7".equals(elements[SmiAbstractWorkItem.WORK]), scanner.inWork());
+            assertEquals(line, elements[SmiAbstractWorkItem.USER], scanner.getUser());
+            assertEquals(line, Long.parseLong(elements[SmiAbstractWorkItem.DATE]), scanner.getDate());
+            assertEquals(line, Integer.parseInt(elements[SmiAbstractWorkItem.NUMBER]), scanner.getNumber());
+         }
+      }
+   }
+
+   /**
+    * Riconoscimento originale della riga.<br>
+    * Le righe troppo corte per la colonna del numero, che facevano fallire {@code getElements},
+    * sono completate con spazi, come le legge lo scanner.
+    *
+    * @return Gli elementi della riga, o null se non e' un work item valido
+    */
+   private static String[] parse(final SmiAbstractWorkItem reference, final String line) {
+      if (!PATTERN_MOD.matcher(line).matches()) {
+         return null;
+      }
+
+      final StringBuilder padded = new StringBuilder(line);
+
+      while (padded.length() < 44) {
+         padded.append(' ');
+      }
+
+      try {
+         final String[] elements = reference.getElements(padded.toString());
+
+         if (!Util.isInteger(elements[SmiAbstractWorkItem.DATE])) {
+            return null;
+         }
+
+         Integer.parseInt(elements[SmiAbstractWorkItem.INDEX]);
+         Long.parseLong(elements[SmiAbstractWorkItem.DATE]);
+         Integer.parseInt(elements[SmiAbstractWorkItem.NUMBER]);
+         return elements;
+      } catch (final NumberFormatException e) {
+         return null;
+      }
+   }
+
+   private static SmiAbstractWorkItem newWorkItem(final Random random, final boolean isSql) {
+      final int index = 9000 + random.nextInt(1000);
+      final int number = random.nextInt(Integer.MAX_VALUE);
+      final long date = 20000101 + random.nextInt(200000);
+      final boolean work = random.nextBoolean();
+      final char[] user = new char[6];
+
+      for (int i = 0; i < user.length; i++) {
+         user[i] = (char) ('A' + random.nextInt(26));
+      }
+
+      return isSql
+            ? new SmiSqlWorkItem(null, index, number, new String(user), date, work)
+            : new SmiPgmWorkItem(null, index, number, new String(user), date, work);
+   }
+}